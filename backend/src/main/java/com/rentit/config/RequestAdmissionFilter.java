@@ -0,0 +1,85 @@
+package com.rentit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rentit.exception.GlobalExceptionHandler.ErrorResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of API requests in progress when requests run on virtual threads. Without a thread pool
+ * in front of it, every open connection becomes a request competing for a pooled database connection, and
+ * under load they all wait out the pool timeout together. Requests over the limit wait briefly for a slot
+ * and are turned away with 503 if none frees up, before they have done any work. Runs ahead of the security
+ * filters, since authenticating a token already needs the database.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class RequestAdmissionFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long admissionTimeoutMs;
+    private final ObjectMapper objectMapper;
+
+    public RequestAdmissionFilter(
+            @Value("${requests.max-concurrent:100}") int maxConcurrent,
+            @Value("${requests.admission-timeout-ms:2000}") long admissionTimeoutMs,
+            ObjectMapper objectMapper
+    ) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.admissionTimeoutMs = admissionTimeoutMs;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Image downloads are served from the image store without touching the database
+        String path = request.getRequestURI();
+        return !path.startsWith("/api/") || (path.startsWith("/api/images/") && "GET".equals(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(admissionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(
+                    HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    "Server is busy, please retry shortly",
+                    LocalDateTime.now()
+            ));
+            return;
+        }
+        // Streamed responses (exports) hand off to the task executor, so the slot is released when this returns
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
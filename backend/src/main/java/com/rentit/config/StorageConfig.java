@@ -0,0 +1,64 @@
+package com.rentit.config;
+
+import com.rentit.storage.ImageStore;
+import com.rentit.storage.LocalImageStore;
+import com.rentit.storage.S3ImageStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.time.Duration;
+
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "images.store.type", havingValue = "local", matchIfMissing = true)
+    public ImageStore localImageStore(@Value("${file.upload-dir}") String uploadDir) {
+        return new LocalImageStore(uploadDir);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "images.store.type", havingValue = "s3")
+    public ImageStore s3ImageStore(
+            @Value("${images.store.s3.endpoint:}") String endpoint,
+            @Value("${images.store.s3.region:us-east-1}") String region,
+            @Value("${images.store.s3.bucket}") String bucket,
+            @Value("${images.store.s3.access-key:}") String accessKey,
+            @Value("${images.store.s3.secret-key:}") String secretKey,
+            @Value("${images.store.s3.path-style:true}") boolean pathStyle,
+            @Value("${images.store.s3.presign-ttl-seconds:900}") long presignTtlSeconds,
+            @Value("${images.store.s3.part-size-bytes:8388608}") long partSize
+    ) {
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration s3Configuration = S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build();
+
+        S3ClientBuilder client = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Configuration);
+        S3Presigner.Builder presigner = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Configuration);
+        if (!endpoint.isBlank()) {
+            client.endpointOverride(URI.create(endpoint));
+            presigner.endpointOverride(URI.create(endpoint));
+        }
+
+        return new S3ImageStore(client.build(), presigner.build(), bucket, Duration.ofSeconds(presignTtlSeconds), partSize);
+    }
+}
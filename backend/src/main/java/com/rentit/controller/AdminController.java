@@ -3,23 +3,35 @@ package com.rentit.controller;
 import com.rentit.dto.MessageResponse;
 import com.rentit.dto.PropertyDTO;
 import com.rentit.dto.UserDTO;
-import com.rentit.entity.Booking;
+import com.rentit.entity.NotificationDeadLetter;
 import com.rentit.entity.Property;
 import com.rentit.entity.User;
-import com.rentit.repository.BookingRepository;
+import com.rentit.event.OutboxRelay;
+import com.rentit.mapper.DtoMapper;
+import com.rentit.notification.NotificationDispatcher;
+import com.rentit.repository.NotificationDeadLetterRepository;
 import com.rentit.repository.PropertyRepository;
-import com.rentit.repository.ReviewRepository;
 import com.rentit.repository.UserRepository;
+import com.rentit.security.PrincipalCache;
+import com.rentit.service.AnalyticsService;
+import com.rentit.service.AvailabilityService;
+import com.rentit.service.ConflictRetry;
+import com.rentit.service.ExportService;
+import com.rentit.service.ImageMigrationService;
+import com.rentit.service.OrphanImageCollector;
 import com.rentit.service.PropertyService;
+import com.rentit.service.PropertyViewCounter;
+import com.rentit.service.ReviewService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -35,10 +47,20 @@ public class AdminController {
 
     private final UserRepository userRepository;
     private final PropertyRepository propertyRepository;
-    private final BookingRepository bookingRepository;
-    private final ReviewRepository reviewRepository;
     private final PropertyService propertyService;
-    private final ModelMapper modelMapper;
+    private final PropertyViewCounter viewCounter;
+    private final PrincipalCache principalCache;
+    private final AnalyticsService analyticsService;
+    private final AvailabilityService availabilityService;
+    private final ReviewService reviewService;
+    private final ExportService exportService;
+    private final ConflictRetry conflictRetry;
+    private final ImageMigrationService imageMigrationService;
+    private final OrphanImageCollector orphanImageCollector;
+    private final OutboxRelay outboxRelay;
+    private final NotificationDispatcher notificationDispatcher;
+    private final NotificationDeadLetterRepository deadLetterRepository;
+    private final DtoMapper dtoMapper;
 
     @GetMapping("/users")
     public ResponseEntity<Map<String, Object>> getAllUsers(
@@ -49,7 +71,7 @@ public class AdminController {
         Page<User> users = userRepository.findAll(pageable);
         
         List<UserDTO> userDTOs = users.getContent().stream()
-                .map(user -> modelMapper.map(user, UserDTO.class))
+                .map(dtoMapper::toUserDTO)
                 .collect(Collectors.toList());
         
         Map<String, Object> response = new HashMap<>();
@@ -71,6 +93,8 @@ public class AdminController {
         }
 
         userRepository.delete(user);
+        analyticsService.userDeleted(user.getRole());
+        principalCache.evict(user.getEmail());
         return ResponseEntity.ok(new MessageResponse("User deleted successfully"));
     }
 
@@ -83,12 +107,15 @@ public class AdminController {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         User.Role role = User.Role.valueOf(request.get("role"));
+        User.Role previousRole = user.getRole();
         user.setRole(role);
         User updatedUser = userRepository.save(user);
+        analyticsService.userRoleChanged(previousRole, role);
+        principalCache.evict(updatedUser.getEmail());
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "User role updated successfully");
-        response.put("user", modelMapper.map(updatedUser, UserDTO.class));
+        response.put("user", dtoMapper.toUserDTO(updatedUser));
 
         return ResponseEntity.ok(response);
     }
@@ -101,11 +128,7 @@ public class AdminController {
         Pageable pageable = PageRequest.of(page, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
         Page<Property> properties = propertyRepository.findByIsVerifiedFalseAndDeletedAtIsNull(pageable);
         
-        Page<PropertyDTO> propertyDTOs = properties.map(property -> {
-            PropertyDTO dto = modelMapper.map(property, PropertyDTO.class);
-            dto.setOwner(modelMapper.map(property.getOwner(), UserDTO.class));
-            return dto;
-        });
+        Page<PropertyDTO> propertyDTOs = properties.map(dtoMapper::toPropertyDTO);
         
         Map<String, Object> response = new HashMap<>();
         response.put("properties", propertyDTOs.getContent());
@@ -126,55 +149,124 @@ public class AdminController {
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Property verified successfully");
-        response.put("property", modelMapper.map(updatedProperty, PropertyDTO.class));
+        response.put("property", dtoMapper.toPropertyDTO(updatedProperty));
 
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/analytics")
     public ResponseEntity<Map<String, Object>> getAnalytics() {
-        long totalUsers = userRepository.count();
-        long totalOwners = userRepository.countByRole(User.Role.OWNER);
-        long totalTenants = userRepository.countByRole(User.Role.TENANT);
-        
-        long totalProperties = propertyRepository.countByDeletedAtIsNull();
-        long availableProperties = propertyRepository.countByAvailabilityStatusAndDeletedAtIsNull(Property.AvailabilityStatus.AVAILABLE);
-        long rentedProperties = propertyRepository.countByAvailabilityStatusAndDeletedAtIsNull(Property.AvailabilityStatus.RENTED);
-        
-        long totalBookings = bookingRepository.count();
-        long pendingBookings = bookingRepository.countByBookingStatus(Booking.BookingStatus.PENDING);
-        long approvedBookings = bookingRepository.countByBookingStatus(Booking.BookingStatus.APPROVED);
-        long rejectedBookings = bookingRepository.countByBookingStatus(Booking.BookingStatus.REJECTED);
-        long cancelledBookings = bookingRepository.countByBookingStatus(Booking.BookingStatus.CANCELLED);
-        
-        long totalReviews = reviewRepository.count();
-        
-        Map<String, Object> users = new HashMap<>();
-        users.put("total", totalUsers);
-        users.put("owners", totalOwners);
-        users.put("tenants", totalTenants);
-        
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("total", totalProperties);
-        properties.put("available", availableProperties);
-        properties.put("rented", rentedProperties);
-        
-        Map<String, Object> bookings = new HashMap<>();
-        bookings.put("total", totalBookings);
-        bookings.put("pending", pendingBookings);
-        bookings.put("approved", approvedBookings);
-        bookings.put("rejected", rejectedBookings);
-        bookings.put("cancelled", cancelledBookings);
-        
-        Map<String, Object> reviews = new HashMap<>();
-        reviews.put("total", totalReviews);
-        
+        return ResponseEntity.ok(analyticsService.getAnalytics());
+    }
+
+    @PostMapping("/ratings/backfill")
+    public ResponseEntity<Map<String, Object>> backfillRatings() {
+        int updated = reviewService.backfillRatings();
+
         Map<String, Object> response = new HashMap<>();
-        response.put("users", users);
-        response.put("properties", properties);
-        response.put("bookings", bookings);
-        response.put("reviews", reviews);
-        
+        response.put("message", "Rating summaries rebuilt");
+        response.put("properties", updated);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/availability/backfill")
+    public ResponseEntity<Map<String, Object>> backfillAvailability() {
+        int updated = availabilityService.backfill();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Availability calendars rebuilt");
+        response.put("properties", updated);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> principalCacheStats = new HashMap<>();
+        principalCacheStats.put("hits", principalCache.getHits());
+        principalCacheStats.put("misses", principalCache.getMisses());
+        principalCacheStats.put("size", principalCache.size());
+
+        Map<String, Object> views = new HashMap<>();
+        views.put("pending", viewCounter.pendingTotal());
+
+        Map<String, Object> conflicts = new HashMap<>();
+        conflicts.put("retries", conflictRetry.getRetries());
+        conflicts.put("exhausted", conflictRetry.getExhausted());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("principalCache", principalCacheStats);
+        response.put("views", views);
+        response.put("conflicts", conflicts);
+        response.put("outbox", outboxRelay.metrics());
+        response.put("notifications", notificationDispatcher.metrics());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/export/{type}")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String type) {
+        StreamingResponseBody body = exportService.export(type);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header("Content-Disposition", "attachment; filename=\"" + type + ".ndjson\"")
+                .body(body);
+    }
+
+    @PostMapping("/images/migration")
+    public ResponseEntity<Map<String, Object>> startImageMigration() {
+        imageMigrationService.start();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Image migration started");
+        response.put("status", imageMigrationService.status());
+
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/images/migration")
+    public ResponseEntity<Map<String, Object>> getImageMigrationStatus() {
+        return ResponseEntity.ok(imageMigrationService.status());
+    }
+
+    @PostMapping("/images/gc")
+    public ResponseEntity<Map<String, Object>> startImageCollection() {
+        if (!orphanImageCollector.start()) {
+            throw new RuntimeException("Orphan image collection is already running");
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Orphan image collection started");
+
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/images/gc")
+    public ResponseEntity<Map<String, Object>> getImageCollectionStatus() {
+        return ResponseEntity.ok(orphanImageCollector.status());
+    }
+
+    @GetMapping("/notifications/dead-letters")
+    public ResponseEntity<Map<String, Object>> getNotificationDeadLetters(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        Pageable pageable = PageRequest.of(page, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Page<NotificationDeadLetter> deadLetters = deadLetterRepository.findAll(pageable);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("deadLetters", deadLetters.getContent());
+        response.put("currentPage", deadLetters.getNumber());
+        response.put("totalPages", deadLetters.getTotalPages());
+        response.put("totalDeadLetters", deadLetters.getTotalElements());
+
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping("/notifications/dead-letters/{id}/resend")
+    public ResponseEntity<MessageResponse> resendNotificationDeadLetter(@PathVariable Long id) {
+        notificationDispatcher.resendDeadLetter(id);
+        return ResponseEntity.ok(new MessageResponse("Notification queued for delivery"));
+    }
 }
@@ -2,7 +2,10 @@ package com.rentit.controller;
 
 import com.rentit.dto.BookingDTO;
 import com.rentit.dto.BookingRequest;
+import com.rentit.dto.BookingSummaryDTO;
+import com.rentit.dto.CursorPage;
 import com.rentit.dto.MessageResponse;
+import com.rentit.security.AuthenticatedUser;
 import com.rentit.service.BookingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,7 +16,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -31,9 +34,9 @@ public class BookingController {
     @PreAuthorize("hasRole('TENANT')")
     public ResponseEntity<Map<String, Object>> createBooking(
             @Valid @RequestBody BookingRequest request,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        BookingDTO booking = bookingService.createBooking(request, authentication.getName());
+        BookingDTO booking = bookingService.createBooking(request, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Booking request created successfully");
         response.put("booking", booking);
@@ -43,9 +46,9 @@ public class BookingController {
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> getBookingById(
             @PathVariable Long id,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        BookingDTO booking = bookingService.getBookingById(id, authentication.getName());
+        BookingDTO booking = bookingService.getBookingById(id, currentUser);
         return ResponseEntity.ok(Map.of("booking", booking));
     }
 
@@ -53,9 +56,9 @@ public class BookingController {
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
     public ResponseEntity<Map<String, Object>> approveBooking(
             @PathVariable Long id,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        BookingDTO booking = bookingService.approveBooking(id, authentication.getName());
+        BookingDTO booking = bookingService.approveBooking(id, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Booking approved successfully");
         response.put("booking", booking);
@@ -66,9 +69,9 @@ public class BookingController {
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
     public ResponseEntity<Map<String, Object>> rejectBooking(
             @PathVariable Long id,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        BookingDTO booking = bookingService.rejectBooking(id, authentication.getName());
+        BookingDTO booking = bookingService.rejectBooking(id, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Booking rejected");
         response.put("booking", booking);
@@ -79,9 +82,9 @@ public class BookingController {
     @PreAuthorize("hasAnyRole('TENANT', 'ADMIN')")
     public ResponseEntity<Map<String, Object>> cancelBooking(
             @PathVariable Long id,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        BookingDTO booking = bookingService.cancelBooking(id, authentication.getName());
+        BookingDTO booking = bookingService.cancelBooking(id, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Booking cancelled successfully");
         response.put("booking", booking);
@@ -93,10 +96,10 @@ public class BookingController {
             @PathVariable Long tenantId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int limit,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
         Pageable pageable = PageRequest.of(page, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<BookingDTO> bookings = bookingService.getTenantBookings(tenantId, pageable, authentication.getName());
+        Page<BookingSummaryDTO> bookings = bookingService.getTenantBookings(tenantId, pageable, currentUser);
         
         Map<String, Object> response = new HashMap<>();
         response.put("bookings", bookings.getContent());
@@ -113,10 +116,22 @@ public class BookingController {
             @PathVariable Long ownerId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int limit,
-            Authentication authentication
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
+        if (cursor != null) {
+            CursorPage<BookingSummaryDTO> bookings = bookingService.getOwnerBookingsAfter(ownerId, cursor, limit, currentUser);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("bookings", bookings.getContent());
+            response.put("nextCursor", bookings.getNextCursor());
+            response.put("hasNext", bookings.isHasNext());
+            
+            return ResponseEntity.ok(response);
+        }
+        
         Pageable pageable = PageRequest.of(page, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<BookingDTO> bookings = bookingService.getOwnerBookings(ownerId, pageable, authentication.getName());
+        Page<BookingSummaryDTO> bookings = bookingService.getOwnerBookings(ownerId, pageable, currentUser);
         
         Map<String, Object> response = new HashMap<>();
         response.put("bookings", bookings.getContent());
@@ -1,23 +1,29 @@
 package com.rentit.controller;
 
 import com.rentit.dto.MessageResponse;
+import com.rentit.exception.ResourceNotFoundException;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.service.ImageService;
+import com.rentit.storage.ImageStore;
+import com.rentit.util.FileTransfer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 @RestController
@@ -26,82 +32,148 @@ import java.util.*;
 @CrossOrigin(origins = "${cors.allowed-origins}")
 public class ImageController {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
 
-    @PostMapping("/upload")
+    private final ImageService imageService;
+    private final ImageStore imageStore;
+
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Map<String, Object>> uploadImages(
-            @RequestParam("images") MultipartFile[] files
+            HttpServletRequest request,
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
         try {
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            List<Map<String, String>> imageUrls = new ArrayList<>();
-
-            for (MultipartFile file : files) {
-                if (file.isEmpty()) {
-                    continue;
-                }
-
-                String originalFilename = file.getOriginalFilename();
-                String filename = UUID.randomUUID().toString() + "_" + originalFilename;
-                Path filePath = uploadPath.resolve(filename);
-
-                Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-                Map<String, String> imageInfo = new HashMap<>();
-                imageInfo.put("filename", filename);
-                imageInfo.put("url", "/uploads/" + filename);
-                imageInfo.put("size", String.valueOf(file.getSize()));
-                imageInfo.put("mimetype", file.getContentType());
-                imageUrls.add(imageInfo);
-            }
+            List<Map<String, String>> imageUrls = imageService.storeMultipart(request, currentUser);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Images uploaded successfully");
             response.put("images", imageUrls);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
-
         } catch (IOException e) {
             throw new RuntimeException("Failed to upload images: " + e.getMessage());
         }
     }
 
-    @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable String filename) {
+    @PostMapping(value = "/upload/stream", consumes = "image/*")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Map<String, Object>> uploadImageStream(
+            InputStream body,
+            @RequestHeader(value = "X-Filename", defaultValue = "image") String originalFilename,
+            @AuthenticationPrincipal AuthenticatedUser currentUser
+    ) {
         try {
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            Resource resource = new UrlResource(filePath.toUri());
+            Map<String, String> image = imageService.storeStream(body, originalFilename, currentUser);
 
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "application/octet-stream";
-                }
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Image uploaded successfully");
+            response.put("images", List.of(image));
 
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                throw new RuntimeException("Image not found");
-            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (IOException e) {
-            throw new RuntimeException("Error loading image: " + e.getMessage());
+            throw new RuntimeException("Failed to upload image: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{filename:.+}")
+    public void getImage(
+            @PathVariable String filename,
+            @RequestParam(required = false) String variant,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        ImageService.StoredImage image = imageService.locate(filename, variant != null ? ImageService.Variant.from(variant) : null);
+
+        Optional<URI> directUrl = imageStore.directUrl(image.key());
+        if (directUrl.isPresent()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            response.sendRedirect(directUrl.get().toString());
+            return;
+        }
+
+        ImageStore.ObjectInfo info = imageStore.stat(image.key())
+                .orElseThrow(() -> new ResourceNotFoundException("Image not found"));
+        long length = info.size();
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, image.immutable() ? IMMUTABLE_CACHE_CONTROL : "no-cache");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(image.etag(), info.lastModified().toEpochMilli())) {
+            return;
+        }
+        response.setContentType(image.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + image.key() + "\"");
+
+        HttpRange range = requestedRange(request, image.etag());
+        if (range == null) {
+            send(image.key(), 0, length, request, response);
+            return;
+        }
+
+        long start = range.getRangeStart(length);
+        if (length == 0 || start >= length) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+        long end = range.getRangeEnd(length) + 1;
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+        send(image.key(), start, end, request, response);
+    }
+
+    private void send(String key, long start, long end, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Path> localPath = imageStore.localPath(key);
+        if (localPath.isPresent()) {
+            FileTransfer.send(localPath.get(), start, end, request, response);
+            return;
+        }
+        response.setContentLengthLong(end - start);
+        try (InputStream in = imageStore.open(key)) {
+            in.skipNBytes(start);
+            long remaining = end - start;
+            byte[] buffer = new byte[64 * 1024];
+            OutputStream out = response.getOutputStream();
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Returns the single byte range to serve, or null to send the whole file. Malformed and multi-part ranges,
+     * and ranges whose If-Range no longer matches, fall back to the whole file as HTTP allows.
+     */
+    private HttpRange requestedRange(HttpServletRequest request, String etag) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
     @DeleteMapping("/{filename:.+}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<MessageResponse> deleteImage(@PathVariable String filename) {
+    public ResponseEntity<MessageResponse> deleteImage(
+            @PathVariable String filename,
+            @AuthenticationPrincipal AuthenticatedUser currentUser
+    ) {
         try {
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            Files.deleteIfExists(filePath);
+            imageService.delete(filename, currentUser);
             return ResponseEntity.ok(new MessageResponse("Image deleted successfully"));
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete image: " + e.getMessage());
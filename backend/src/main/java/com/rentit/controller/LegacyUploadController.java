@@ -0,0 +1,25 @@
+package com.rentit.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+/**
+ * Keeps /uploads/ URLs saved before the switch to a shared image store working by sending them to the image endpoint.
+ */
+@RestController
+@ConditionalOnProperty(name = "images.store.type", havingValue = "s3")
+public class LegacyUploadController {
+
+    @GetMapping("/uploads/{filename:.+}")
+    public ResponseEntity<Void> redirect(@PathVariable String filename) {
+        return ResponseEntity.status(HttpStatus.MOVED_PERMANENTLY)
+                .location(URI.create("/api/images/" + filename))
+                .build();
+    }
+}
@@ -1,22 +1,28 @@
 package com.rentit.controller;
 
+import com.rentit.dto.CursorPage;
 import com.rentit.dto.MessageResponse;
 import com.rentit.dto.PropertyDTO;
 import com.rentit.dto.PropertyRequest;
 import com.rentit.entity.Property;
+import com.rentit.search.PropertySortKey;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.service.PropertyImportService;
 import com.rentit.service.PropertyService;
+import com.rentit.util.PageRequests;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,29 +33,55 @@ import java.util.Map;
 public class PropertyController {
 
     private final PropertyService propertyService;
+    private final PropertyImportService propertyImportService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
     public ResponseEntity<Map<String, Object>> createProperty(
             @Valid @RequestBody PropertyRequest request,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        PropertyDTO property = propertyService.createProperty(request, authentication.getName());
+        PropertyDTO property = propertyService.createProperty(request, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Property created successfully");
         response.put("property", property);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
+    public ResponseEntity<Map<String, Object>> importProperties(
+            InputStream body,
+            @AuthenticationPrincipal AuthenticatedUser currentUser
+    ) {
+        Map<String, Object> response = propertyImportService.importProperties(body, currentUser);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllProperties(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int limit,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String order
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(required = false) String cursor
     ) {
-        Sort.Direction direction = order.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, limit, Sort.by(direction, sortBy));
+        if (cursor != null) {
+            if (!sortBy.equals("createdAt") || !order.equalsIgnoreCase("desc")) {
+                throw new RuntimeException("Cursor pagination only supports sortBy=createdAt&order=desc");
+            }
+            CursorPage<PropertyDTO> properties = propertyService.getAllPropertiesAfter(cursor, PageRequests.limit(limit));
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("properties", properties.getContent());
+            response.put("nextCursor", properties.getNextCursor());
+            response.put("hasNext", properties.isHasNext());
+            response.put("totalProperties", propertyService.approximatePropertyCount());
+            
+            return ResponseEntity.ok(response);
+        }
+        
+        Pageable pageable = PageRequests.of(page, limit, PropertySortKey.toSort(sortBy, order));
         
         Page<PropertyDTO> properties = propertyService.getAllProperties(pageable);
         
@@ -73,9 +105,9 @@ public class PropertyController {
     public ResponseEntity<Map<String, Object>> updateProperty(
             @PathVariable Long id,
             @Valid @RequestBody PropertyRequest request,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        PropertyDTO property = propertyService.updateProperty(id, request, authentication.getName());
+        PropertyDTO property = propertyService.updateProperty(id, request, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Property updated successfully");
         response.put("property", property);
@@ -86,9 +118,9 @@ public class PropertyController {
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
     public ResponseEntity<MessageResponse> deleteProperty(
             @PathVariable Long id,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        propertyService.deleteProperty(id, authentication.getName());
+        propertyService.deleteProperty(id, currentUser);
         return ResponseEntity.ok(new MessageResponse("Property deleted successfully"));
     }
 
@@ -98,10 +130,10 @@ public class PropertyController {
             @PathVariable Long ownerId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int limit,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        Pageable pageable = PageRequest.of(page, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<PropertyDTO> properties = propertyService.getPropertiesByOwner(ownerId, pageable, authentication.getName());
+        Pageable pageable = PageRequests.of(page, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Page<PropertyDTO> properties = propertyService.getPropertiesByOwner(ownerId, pageable, currentUser);
         
         Map<String, Object> response = new HashMap<>();
         response.put("properties", properties.getContent());
@@ -117,10 +149,10 @@ public class PropertyController {
     public ResponseEntity<Map<String, Object>> updatePropertyStatus(
             @PathVariable Long id,
             @RequestBody Map<String, String> request,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
         Property.AvailabilityStatus status = Property.AvailabilityStatus.valueOf(request.get("status"));
-        PropertyDTO property = propertyService.updatePropertyStatus(id, status, authentication.getName());
+        PropertyDTO property = propertyService.updatePropertyStatus(id, status, currentUser);
         
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Property status updated successfully");
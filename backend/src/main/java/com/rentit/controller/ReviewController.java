@@ -3,6 +3,7 @@ package com.rentit.controller;
 import com.rentit.dto.MessageResponse;
 import com.rentit.dto.ReviewDTO;
 import com.rentit.dto.ReviewRequest;
+import com.rentit.security.AuthenticatedUser;
 import com.rentit.service.ReviewService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +13,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -30,9 +31,9 @@ public class ReviewController {
     @PreAuthorize("hasRole('TENANT')")
     public ResponseEntity<Map<String, Object>> submitReview(
             @Valid @RequestBody ReviewRequest request,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        ReviewDTO review = reviewService.submitReview(request, authentication.getName());
+        ReviewDTO review = reviewService.submitReview(request, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Review submitted successfully");
         response.put("review", review);
@@ -43,8 +44,12 @@ public class ReviewController {
     public ResponseEntity<Map<String, Object>> getPropertyReviews(
             @PathVariable Long propertyId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int limit
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String cursor
     ) {
+        if (cursor != null) {
+            return ResponseEntity.ok(reviewService.getPropertyReviewsAfter(propertyId, cursor, limit));
+        }
         Pageable pageable = PageRequest.of(page, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
         Map<String, Object> response = reviewService.getPropertyReviews(propertyId, pageable);
         return ResponseEntity.ok(response);
@@ -55,9 +60,9 @@ public class ReviewController {
     public ResponseEntity<Map<String, Object>> updateReview(
             @PathVariable Long id,
             @RequestBody ReviewRequest request,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        ReviewDTO review = reviewService.updateReview(id, request, authentication.getName());
+        ReviewDTO review = reviewService.updateReview(id, request, currentUser);
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Review updated successfully");
         response.put("review", review);
@@ -68,9 +73,9 @@ public class ReviewController {
     @PreAuthorize("hasAnyRole('TENANT', 'ADMIN')")
     public ResponseEntity<MessageResponse> deleteReview(
             @PathVariable Long id,
-            Authentication authentication
+            @AuthenticationPrincipal AuthenticatedUser currentUser
     ) {
-        MessageResponse response = reviewService.deleteReview(id, authentication.getName());
+        MessageResponse response = reviewService.deleteReview(id, currentUser);
         return ResponseEntity.ok(response);
     }
 }
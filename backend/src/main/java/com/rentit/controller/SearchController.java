@@ -2,15 +2,17 @@ package com.rentit.controller;
 
 import com.rentit.dto.PropertyDTO;
 import com.rentit.entity.Property;
+import com.rentit.search.PropertySortKey;
 import com.rentit.service.PropertyService;
+import com.rentit.util.PageRequests;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,16 +32,18 @@ public class SearchController {
             @RequestParam(required = false) Property.PropertyType propertyType,
             @RequestParam(required = false) Integer bedrooms,
             @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) Property.AvailabilityStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate availableFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate availableTo,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String order,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int limit
     ) {
-        Sort.Direction direction = order.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, limit, Sort.by(direction, sortBy));
+        Pageable pageable = PageRequests.of(page, limit, PropertySortKey.toSort(sortBy, order));
         
         Page<PropertyDTO> properties = propertyService.searchProperties(
-                location, minPrice, maxPrice, propertyType, bedrooms, pageable
+                location, minPrice, maxPrice, propertyType, bedrooms, status, availableFrom, availableTo, pageable
         );
         
         Map<String, Object> response = new HashMap<>();
@@ -59,10 +63,8 @@ public class SearchController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int limit
     ) {
-        // For simplicity, using the same search method
-        // In production, implement actual geospatial queries
-        Pageable pageable = PageRequest.of(page, limit);
-        Page<PropertyDTO> properties = propertyService.getAllProperties(pageable);
+        Pageable pageable = PageRequests.of(page, limit);
+        Page<PropertyDTO> properties = propertyService.searchNearby(lat, lng, radius, pageable);
         
         Map<String, Object> response = new HashMap<>();
         response.put("properties", properties.getContent());
@@ -20,6 +20,7 @@ public class BookingDTO {
     private UserDTO owner;
     private Booking.BookingStatus bookingStatus;
     private LocalDate checkInDate;
+    private LocalDate checkOutDate;
     private LocalDateTime bookingDate;
     private String notes;
     private LocalDateTime createdAt;
@@ -1,5 +1,6 @@
 package com.rentit.dto;
 
+import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -15,6 +16,9 @@ public class BookingRequest {
     @NotNull(message = "Check-in date is required")
     @FutureOrPresent(message = "Check-in date must be in the present or future")
     private LocalDate checkInDate;
+
+    @Future(message = "Check-out date must be in the future")
+    private LocalDate checkOutDate;
     
     private String notes;
 }
@@ -0,0 +1,31 @@
+package com.rentit.dto;
+
+import com.rentit.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSummaryDTO {
+    private Long id;
+    private Long propertyId;
+    private String propertyTitle;
+    private String propertyCity;
+    private Double rentAmount;
+    private String primaryImageUrl;
+    private UserDTO tenant;
+    private UserDTO owner;
+    private Booking.BookingStatus bookingStatus;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private LocalDateTime bookingDate;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.rentit.dto;
+
+import com.rentit.util.KeysetCursor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public static <E, T> CursorPage<T> of(Slice<E> slice, Function<E, T> mapper, Function<E, KeysetCursor> position) {
+        List<E> rows = slice.getContent();
+        String nextCursor = slice.hasNext() && !rows.isEmpty()
+                ? position.apply(rows.get(rows.size() - 1)).encode()
+                : null;
+        return new CursorPage<>(rows.stream().map(mapper).toList(), nextCursor, slice.hasNext());
+    }
+}
@@ -35,6 +35,8 @@ public class PropertyDTO {
     private Property.AvailabilityStatus availabilityStatus;
     private Boolean isVerified;
     private Long views;
+    private Double averageRating;
+    private Long reviewCount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -2,6 +2,7 @@ package com.rentit.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -10,7 +11,9 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "bookings", indexes = {
-    @Index(name = "idx_booking_status", columnList = "bookingStatus")
+    @Index(name = "idx_booking_status", columnList = "bookingStatus"),
+    @Index(name = "idx_booking_owner_created", columnList = "owner_id, createdAt, id"),
+    @Index(name = "idx_booking_property_status_checkin", columnList = "property_id, bookingStatus, checkInDate")
 })
 @Getter
 @Setter
@@ -37,17 +40,27 @@ public class Booking {
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
+    @Builder.Default
     private BookingStatus bookingStatus = BookingStatus.PENDING;
 
     @Column(nullable = false)
     private LocalDate checkInDate;
 
+    // Exclusive; null for open-ended stays
+    private LocalDate checkOutDate;
+
     @Column(nullable = false)
+    @Builder.Default
     private LocalDateTime bookingDate = LocalDateTime.now();
 
     @Column(length = 1000)
     private String notes;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,36 @@
+package com.rentit.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks an outbox event as handled by one consumer, so a redelivered event is not applied twice.
+ */
+@Entity
+@Table(name = "processed_events", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_processed_consumer_key", columnNames = {"consumer", "eventKey"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessedEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 60)
+    private String consumer;
+
+    @Column(nullable = false, length = 36)
+    private String eventKey;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -2,6 +2,8 @@ package com.rentit.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -12,7 +14,13 @@ import java.util.List;
 @Entity
 @Table(name = "properties", indexes = {
     @Index(name = "idx_city_status", columnList = "city, availabilityStatus"),
-    @Index(name = "idx_rent_amount", columnList = "rentAmount")
+    @Index(name = "idx_rent_amount", columnList = "rentAmount"),
+    @Index(name = "idx_bedrooms", columnList = "bedrooms"),
+    @Index(name = "idx_views", columnList = "views"),
+    @Index(name = "idx_deleted_status_created", columnList = "deletedAt, availabilityStatus, createdAt"),
+    @Index(name = "idx_lat_lng", columnList = "latitude, longitude"),
+    @Index(name = "idx_rating_average", columnList = "ratingAverage"),
+    @Index(name = "idx_created_at_id", columnList = "createdAt, id")
 })
 @Getter
 @Setter
@@ -70,11 +78,13 @@ public class Property {
     private Double areaSqft;
 
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "property_amenities", joinColumns = @JoinColumn(name = "property_id"))
     @Column(name = "amenity")
     private List<String> amenities = new ArrayList<>();
 
     @OneToMany(mappedBy = "property", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     private List<PropertyImage> images = new ArrayList<>();
 
     @Enumerated(EnumType.STRING)
@@ -84,11 +94,21 @@ public class Property {
     @Column(nullable = false)
     private Boolean isVerified = false;
 
-    @Column(nullable = false)
+    // Only written through PropertyViewCounter's additive updates, never from entity state.
+    @Column(nullable = false, updatable = false)
     private Long views = 0L;
 
+    @Embedded
+    @Builder.Default
+    private RatingSummary rating = new RatingSummary();
+
     private LocalDateTime deletedAt;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,38 @@
+package com.rentit.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * A run of nights a property is taken, merged from its overlapping or adjacent approved bookings.
+ * Properties are free on every date not covered by one of their rows.
+ */
+@Entity
+@Table(name = "property_availability", indexes = {
+    @Index(name = "idx_availability_property_start", columnList = "property_id, startDate")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PropertyAvailability {
+
+    public static final LocalDate OPEN_END = LocalDate.of(9999, 12, 31);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "property_id", nullable = false)
+    private Long propertyId;
+
+    @Column(nullable = false)
+    private LocalDate startDate;
+
+    // Exclusive; OPEN_END when the last booking has no check-out date
+    @Column(nullable = false)
+    private LocalDate endDate;
+}
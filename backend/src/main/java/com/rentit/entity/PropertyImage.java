@@ -7,7 +7,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "property_images")
+@Table(name = "property_images", indexes = {
+    @Index(name = "idx_property_image_url", columnList = "url")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,89 @@
+package com.rentit.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Denormalized review aggregates for a property: count, sum, average and a 1-5 star histogram.
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummary {
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long ratingCount = 0L;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long ratingSum = 0L;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Double ratingAverage = 0.0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long oneStarCount = 0L;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long twoStarCount = 0L;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long threeStarCount = 0L;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long fourStarCount = 0L;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long fiveStarCount = 0L;
+
+    public void add(int rating) {
+        adjust(rating, 1);
+    }
+
+    public void add(int rating, long count) {
+        adjust(rating, count);
+    }
+
+    public void remove(int rating) {
+        adjust(rating, -1);
+    }
+
+    public long getStarCount(int rating) {
+        return switch (rating) {
+            case 1 -> oneStarCount;
+            case 2 -> twoStarCount;
+            case 3 -> threeStarCount;
+            case 4 -> fourStarCount;
+            case 5 -> fiveStarCount;
+            default -> throw new IllegalArgumentException("Rating must be between 1 and 5");
+        };
+    }
+
+    private void adjust(int rating, long delta) {
+        switch (rating) {
+            case 1 -> oneStarCount += delta;
+            case 2 -> twoStarCount += delta;
+            case 3 -> threeStarCount += delta;
+            case 4 -> fourStarCount += delta;
+            case 5 -> fiveStarCount += delta;
+            default -> throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        ratingCount += delta;
+        ratingSum += rating * delta;
+        ratingAverage = ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+}
@@ -10,6 +10,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "reviews", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"property_id", "tenant_id"})
+}, indexes = {
+    @Index(name = "idx_review_property_created", columnList = "property_id, createdAt, id")
 })
 @Getter
 @Setter
@@ -0,0 +1,37 @@
+package com.rentit.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records that a user uploaded an image. Images are stored by content hash, so several users can own
+ * the same stored object; each of them gets a row.
+ */
+@Entity
+@Table(name = "uploaded_images", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_uploaded_image_hash_uploader", columnNames = {"contentHash", "uploaderId"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadedImage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private Long uploaderId;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
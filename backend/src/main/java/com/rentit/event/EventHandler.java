@@ -0,0 +1,46 @@
+package com.rentit.event;
+
+import com.rentit.entity.OutboxEvent;
+
+import java.util.Set;
+
+/**
+ * An in-process consumer of outbox events. Delivery is at least once and in order per aggregate;
+ * a handler that throws gets the event again later.
+ */
+public interface EventHandler {
+
+    /**
+     * Stable name used to remember which events this handler has already processed.
+     */
+    String name();
+
+    Set<OutboxEvent.Type> eventTypes();
+
+    void handle(OutboxEvent event) throws Exception;
+
+    /**
+     * Whether applying an event twice is harmless. Handlers that are not get each event key recorded
+     * after success, and redeliveries of recorded keys are skipped.
+     */
+    default boolean idempotent() {
+        return false;
+    }
+
+    /**
+     * Whether every instance applies the event, instead of only the one that claims it. For handlers that
+     * keep per-instance state such as the in-memory indexes; they must be idempotent. A failed event is
+     * applied again on the following polls, up to events.relay.max-attempts times, and then {@link #resync()}
+     * is called.
+     */
+    default boolean broadcast() {
+        return false;
+    }
+
+    /**
+     * Rebuilds a broadcast handler's per-instance state from the database, for when an event could not be
+     * applied. Runs on the relay thread, so no event is applied concurrently.
+     */
+    default void resync() {
+    }
+}
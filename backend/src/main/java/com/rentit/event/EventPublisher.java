@@ -0,0 +1,77 @@
+package com.rentit.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rentit.entity.OutboxEvent;
+import com.rentit.repository.OutboxEventRepository;
+import com.rentit.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records events in the outbox as part of the caller's transaction, so an event exists exactly when
+ * the change it describes was committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventPublisher {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_events (event_key, event_type, aggregate_type, aggregate_id, payload, status, attempts, created_at) " +
+            "VALUES (?, ?, ?, ?, '{}', 'PENDING', 0, ?)";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay outboxRelay;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEvent.Type type, String aggregateType, Long aggregateId, Map<String, Object> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event payload is not serializable", e);
+        }
+        outboxEventRepository.save(OutboxEvent.builder()
+                .eventKey(UUID.randomUUID().toString())
+                .eventType(type)
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId)
+                .payload(json)
+                .build());
+        // The relay would find the event on its next poll anyway; waking it keeps the lag low
+        TransactionUtils.afterCommit(outboxRelay::wakeUp);
+    }
+
+    public void propertyChanged(Long propertyId) {
+        publish(OutboxEvent.Type.PROPERTY_CHANGED, "PROPERTY", propertyId, Map.of());
+    }
+
+    /**
+     * Records a change event for each of the properties in one batch, for bulk writes that bypass JPA.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void propertiesChanged(List<Long> propertyIds) {
+        if (propertyIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(propertyIds.size());
+        for (Long propertyId : propertyIds) {
+            rows.add(new Object[]{UUID.randomUUID().toString(), OutboxEvent.Type.PROPERTY_CHANGED.name(), "PROPERTY", propertyId, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        TransactionUtils.afterCommit(outboxRelay::wakeUp);
+    }
+}
@@ -0,0 +1,106 @@
+package com.rentit.event;
+
+import com.rentit.entity.Booking;
+import com.rentit.entity.OutboxEvent;
+import com.rentit.entity.User;
+import com.rentit.notification.Notification;
+import com.rentit.notification.NotificationDispatcher;
+import com.rentit.repository.BookingRepository;
+import com.rentit.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Turns booking and account events into notifications for the people involved. A full notification queue
+ * fails the event, so the outbox holds on to it and retries later instead of dropping the message.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationEventHandler implements EventHandler {
+
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final NotificationDispatcher notificationDispatcher;
+
+    @Value("${notifications.password-reset-url:http://localhost:3000/reset-password?token={token}}")
+    private String passwordResetUrl;
+
+    @Override
+    public String name() {
+        return "notifications";
+    }
+
+    @Override
+    public Set<OutboxEvent.Type> eventTypes() {
+        return Set.of(
+                OutboxEvent.Type.BOOKING_CREATED,
+                OutboxEvent.Type.BOOKING_APPROVED,
+                OutboxEvent.Type.BOOKING_REJECTED,
+                OutboxEvent.Type.BOOKING_CANCELLED,
+                OutboxEvent.Type.PASSWORD_RESET_REQUESTED
+        );
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        List<Notification> notifications = event.getEventType() == OutboxEvent.Type.PASSWORD_RESET_REQUESTED
+                ? userRepository.findById(event.getAggregateId()).map(this::passwordReset).orElse(List.of())
+                : bookingRepository.findById(event.getAggregateId()).map(booking -> forBooking(event.getEventType(), booking)).orElse(List.of());
+        if (!notifications.isEmpty() && !notificationDispatcher.enqueueAll(notifications)) {
+            throw new IllegalStateException("Notification queue is full");
+        }
+    }
+
+    private List<Notification> forBooking(OutboxEvent.Type type, Booking booking) {
+        User tenant = booking.getTenant();
+        User owner = booking.getOwner();
+        String title = booking.getProperty().getTitle();
+        String stay = describeStay(booking);
+        return switch (type) {
+            case BOOKING_CREATED -> List.of(
+                    new Notification(owner.getEmail(), "New booking request for " + title,
+                            tenant.getUsername() + " has requested to book " + title + " " + stay + ".\n"
+                                    + "Approve or reject the request from your dashboard."),
+                    new Notification(tenant.getEmail(), "Booking request sent for " + title,
+                            "Your request to book " + title + " " + stay + " has been sent to the owner.\n"
+                                    + "We will let you know when they respond."));
+            case BOOKING_APPROVED -> List.of(
+                    new Notification(tenant.getEmail(), "Your booking for " + title + " was approved",
+                            owner.getUsername() + " approved your booking of " + title + " " + stay + "."));
+            case BOOKING_REJECTED -> List.of(
+                    new Notification(tenant.getEmail(), "Your booking for " + title + " was declined",
+                            owner.getUsername() + " declined your booking request for " + title + " " + stay + "."));
+            case BOOKING_CANCELLED -> List.of(
+                    new Notification(owner.getEmail(), "Booking for " + title + " was cancelled",
+                            "The booking of " + title + " by " + tenant.getUsername() + " " + stay + " was cancelled."));
+            default -> List.of();
+        };
+    }
+
+    private List<Notification> passwordReset(User user) {
+        // Only the latest token is worth sending; an older request's mail would carry a dead link
+        if (user.getResetPasswordToken() == null || user.getResetPasswordExpire() == null
+                || user.getResetPasswordExpire().isBefore(LocalDateTime.now())) {
+            return List.of();
+        }
+        String token = user.getResetPasswordToken();
+        String link = passwordResetUrl.replace("{token}", token);
+        return List.of(new Notification(user.getEmail(), "Reset your Rentit password",
+                "We received a request to reset the password for your account.\n"
+                        + "Open this link within the next hour to choose a new password:\n" + link + "\n\n"
+                        + "If you did not ask for this, you can ignore this email.",
+                List.of(token)));
+    }
+
+    private static String describeStay(Booking booking) {
+        return Optional.ofNullable(booking.getCheckOutDate())
+                .map(checkOut -> "from " + booking.getCheckInDate() + " to " + checkOut)
+                .orElse("from " + booking.getCheckInDate());
+    }
+}
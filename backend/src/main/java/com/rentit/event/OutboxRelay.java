@@ -0,0 +1,492 @@
+package com.rentit.event;
+
+import com.rentit.entity.OutboxEvent;
+import com.rentit.entity.ProcessedEvent;
+import com.rentit.repository.OutboxEventRepository;
+import com.rentit.repository.ProcessedEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers outbox events to the registered handlers. A single relay thread polls pending events in id
+ * order, claims them with a lease so several instances can share the table, and fans them out to a fixed
+ * set of single-threaded lanes chosen by aggregate, which keeps events for one aggregate in order while
+ * different aggregates proceed in parallel. Failed events are retried with exponential backoff, and later
+ * events of the same aggregate wait for them; after the last attempt an event is parked as FAILED.
+ * Broadcast handlers are not part of the claim: the same thread follows the table by id on every
+ * instance and hands each committed event to them, whichever instance claims it. A broadcast event that
+ * fails is applied again on each poll, and after max-attempts the failing handlers resync from the database.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final String CLAIM_SQL =
+            "UPDATE outbox_events SET claimed_until = ? " +
+            "WHERE id = ? AND status = 'PENDING' AND (claimed_until IS NULL OR claimed_until < ?)";
+    private static final String PUBLISHED_SQL =
+            "UPDATE outbox_events SET status = 'PUBLISHED', published_at = ?, claimed_until = NULL WHERE id = ?";
+    private static final String RETRY_SQL =
+            "UPDATE outbox_events SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ?, claimed_until = NULL WHERE id = ?";
+    private static final String RELEASE_SQL =
+            "UPDATE outbox_events SET claimed_until = NULL WHERE id = ?";
+    private static final long MAX_BACKOFF_SECONDS = 300;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ProcessedEventRepository processedEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<OutboxEvent.Type, List<EventHandler>> handlersByType = new EnumMap<>(OutboxEvent.Type.class);
+    private final Map<OutboxEvent.Type, List<EventHandler>> broadcastByType = new EnumMap<>(OutboxEvent.Type.class);
+
+    @Value("${events.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${events.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${events.relay.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${events.relay.threads:4}")
+    private int threads;
+
+    @Value("${events.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${events.relay.claim-seconds:60}")
+    private long claimSeconds;
+
+    @Value("${events.relay.broadcast-gap-seconds:60}")
+    private long broadcastGapSeconds;
+
+    @Value("${events.retention-days:7}")
+    private long retentionDays;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final LongAdder published = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder parked = new LongAdder();
+
+    // How far this instance has broadcast, only touched by the relay thread. Every event up to
+    // broadcastSettled is done; above it, broadcastApplied holds the ones applied while an earlier id is
+    // still missing, gapsSince when each missing run of ids was first noticed, and broadcastFailures the
+    // attempts so far of events that failed to apply, which hold broadcastSettled back until they succeed.
+    private long broadcastSettled;
+    private long broadcastHigh;
+    private final Set<Long> broadcastApplied = new HashSet<>();
+    private final Map<Long, Long> gapsSince = new HashMap<>();
+    private final Map<Long, Integer> broadcastFailures = new HashMap<>();
+
+    private ThreadPoolExecutor[] lanes;
+    private Thread relayThread;
+    private volatile boolean running;
+
+    private enum Outcome {
+        PUBLISHED, FAILED, SKIPPED
+    }
+
+    private record Result(OutboxEvent event, Outcome outcome, String error) {
+    }
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            ProcessedEventRepository processedEventRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            List<EventHandler> handlers
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.processedEventRepository = processedEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (EventHandler handler : handlers) {
+            if (handler.broadcast() && !handler.idempotent()) {
+                throw new IllegalStateException("Broadcast event handler " + handler.name() + " must be idempotent");
+            }
+            Map<OutboxEvent.Type, List<EventHandler>> byType = handler.broadcast() ? broadcastByType : handlersByType;
+            for (OutboxEvent.Type type : handler.eventTypes()) {
+                byType.computeIfAbsent(type, t -> new ArrayList<>()).add(handler);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        lanes = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "outbox-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(batchSize),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        // The indexes were built from the database at about the same time, so replay the recent events
+        // rather than risk missing one that committed in between
+        Long replayFrom = outboxEventRepository.findMaxIdCreatedBefore(LocalDateTime.now().minusSeconds(broadcastGapSeconds));
+        broadcastSettled = replayFrom != null ? replayFrom : 0L;
+        broadcastHigh = broadcastSettled;
+        running = true;
+        relayThread = new Thread(this::run, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+        if (lanes != null) {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Asks the relay to poll now instead of waiting out its interval.
+     */
+    public void wakeUp() {
+        wakeUps.release();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                boolean more = true;
+                while (running && more) {
+                    // keep going while full batches made progress
+                    more = drain();
+                    more |= broadcast();
+                }
+                wakeUps.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Outbox relay poll failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers one batch. Returns true when the batch was full and delivered something, so there may be more.
+     */
+    private boolean drain() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> pending = outboxEventRepository.findDue(OutboxEvent.Status.PENDING, now, PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) {
+            return false;
+        }
+
+        List<OutboxEvent> claimed = claim(pending, now);
+        if (claimed.isEmpty()) {
+            return false;
+        }
+
+        Map<Integer, List<OutboxEvent>> byLane = new LinkedHashMap<>();
+        for (OutboxEvent event : claimed) {
+            byLane.computeIfAbsent(Math.floorMod(aggregateOf(event).hashCode(), lanes.length), lane -> new ArrayList<>())
+                    .add(event);
+        }
+        List<CompletableFuture<List<Result>>> futures = new ArrayList<>();
+        byLane.forEach((lane, events) -> futures.add(CompletableFuture.supplyAsync(() -> deliverInOrder(events), lanes[lane])));
+
+        List<Result> results = new ArrayList<>(claimed.size());
+        futures.forEach(future -> results.addAll(future.join()));
+        record(results);
+        return pending.size() == batchSize;
+    }
+
+    /**
+     * Leases the due events of the batch to this instance. When another instance took an event first,
+     * the later events of its aggregate are released again to keep per-aggregate order.
+     */
+    private List<OutboxEvent> claim(List<OutboxEvent> due, LocalDateTime now) {
+        Timestamp until = Timestamp.valueOf(now.plusSeconds(claimSeconds));
+        Timestamp current = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(due.size());
+        for (OutboxEvent event : due) {
+            args.add(new Object[]{until, event.getId(), current});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(CLAIM_SQL, args);
+
+        Set<String> blocked = new HashSet<>();
+        List<OutboxEvent> claimed = new ArrayList<>(due.size());
+        List<Object[]> release = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            OutboxEvent event = due.get(i);
+            String aggregate = aggregateOf(event);
+            // SUCCESS_NO_INFO (-2) means the driver ran the statement but did not report a row count
+            boolean won = counts[i] == 1 || counts[i] == Statement.SUCCESS_NO_INFO;
+            if (!won || blocked.contains(aggregate)) {
+                blocked.add(aggregate);
+                if (won) {
+                    release.add(new Object[]{event.getId()});
+                }
+                continue;
+            }
+            claimed.add(event);
+        }
+        if (!release.isEmpty()) {
+            jdbcTemplate.batchUpdate(RELEASE_SQL, release);
+        }
+        return claimed;
+    }
+
+    /**
+     * Hands committed events to the broadcast handlers of this instance, following the table by id.
+     * Ids are taken before commit, so a lower id can show up after a higher one; ids missing below the
+     * highest one applied are read again on each poll until they commit or have been missing for
+     * broadcast-gap-seconds, which is what a rolled back insert looks like. Returns true when a full
+     * page of new events was read, so there may be more.
+     */
+    private boolean broadcast() {
+        if (broadcastByType.isEmpty()) {
+            return false;
+        }
+        List<OutboxEvent> events = new ArrayList<>();
+        if (broadcastSettled < broadcastHigh) {
+            events.addAll(outboxEventRepository.findByIdBetweenOrderByIdAsc(broadcastSettled + 1, broadcastHigh));
+        }
+        List<OutboxEvent> fresh = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(broadcastHigh, PageRequest.of(0, batchSize));
+        events.addAll(fresh);
+
+        for (OutboxEvent event : events) {
+            if (broadcastApplied.add(event.getId()) || broadcastFailures.containsKey(event.getId())) {
+                applyBroadcast(event);
+            }
+        }
+        if (!fresh.isEmpty()) {
+            broadcastHigh = fresh.get(fresh.size() - 1).getId();
+        }
+        settle(events);
+        return fresh.size() == batchSize;
+    }
+
+    /**
+     * Applies the event to every broadcast handler of its type. A failure leaves it in broadcastFailures
+     * to be applied again on the next poll; once that has happened max-attempts times it is given up on,
+     * and the handlers that still fail rebuild their state from the database instead.
+     */
+    private void applyBroadcast(OutboxEvent event) {
+        List<EventHandler> failed = new ArrayList<>();
+        for (EventHandler handler : broadcastByType.getOrDefault(event.getEventType(), List.of())) {
+            try {
+                handler.handle(event);
+            } catch (Exception e) {
+                failed.add(handler);
+                log.warn("Applying outbox event {} ({}) in {} failed: {}", event.getId(), event.getEventType(), handler.name(), e.getMessage());
+            }
+        }
+        if (failed.isEmpty()) {
+            broadcastFailures.remove(event.getId());
+            return;
+        }
+        int attempts = broadcastFailures.merge(event.getId(), 1, Integer::sum);
+        if (attempts < maxAttempts) {
+            retried.increment();
+            return;
+        }
+        broadcastFailures.remove(event.getId());
+        parked.increment();
+        for (EventHandler handler : failed) {
+            log.error("Outbox event {} ({}) could not be applied in {} after {} attempts, resyncing it",
+                    event.getId(), event.getEventType(), handler.name(), attempts);
+            try {
+                handler.resync();
+            } catch (RuntimeException e) {
+                log.error("Resyncing {} failed: {}", handler.name(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves broadcastSettled up over the events just read, stopping at the first missing id that has not
+     * been missing for long enough to give up on, or at the first event still waiting to be applied again.
+     */
+    private void settle(List<OutboxEvent> events) {
+        long now = System.currentTimeMillis();
+        long next = broadcastSettled + 1;
+        for (OutboxEvent event : events) {
+            if (broadcastFailures.containsKey(event.getId())) {
+                break;
+            }
+            if (event.getId() > next) {
+                long missingSince = gapsSince.computeIfAbsent(next, id -> now);
+                if (now - missingSince < broadcastGapSeconds * 1000) {
+                    break;
+                }
+                gapsSince.remove(next);
+            }
+            broadcastSettled = event.getId();
+            next = broadcastSettled + 1;
+        }
+        long settled = broadcastSettled;
+        broadcastApplied.removeIf(id -> id <= settled);
+        gapsSince.keySet().removeIf(id -> id <= settled);
+    }
+
+    private List<Result> deliverInOrder(List<OutboxEvent> events) {
+        List<Result> results = new ArrayList<>(events.size());
+        Set<String> failedAggregates = new HashSet<>();
+        for (OutboxEvent event : events) {
+            String aggregate = aggregateOf(event);
+            if (failedAggregates.contains(aggregate)) {
+                results.add(new Result(event, Outcome.SKIPPED, null));
+                continue;
+            }
+            try {
+                deliver(event);
+                results.add(new Result(event, Outcome.PUBLISHED, null));
+            } catch (Exception e) {
+                failedAggregates.add(aggregate);
+                String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                results.add(new Result(event, Outcome.FAILED, error.length() > 500 ? error.substring(0, 500) : error));
+                log.warn("Delivering outbox event {} ({}) failed: {}", event.getId(), event.getEventType(), error);
+            }
+        }
+        return results;
+    }
+
+    private void deliver(OutboxEvent event) throws Exception {
+        for (EventHandler handler : handlersByType.getOrDefault(event.getEventType(), List.of())) {
+            if (handler.idempotent()) {
+                handler.handle(event);
+                continue;
+            }
+            // The handler's own writes and the processed marker commit together
+            Exception failure = transactionTemplate.execute(status -> {
+                if (processedEventRepository.existsByConsumerAndEventKey(handler.name(), event.getEventKey())) {
+                    return null;
+                }
+                try {
+                    handler.handle(event);
+                } catch (Exception e) {
+                    status.setRollbackOnly();
+                    return e;
+                }
+                processedEventRepository.save(ProcessedEvent.builder()
+                        .consumer(handler.name())
+                        .eventKey(event.getEventKey())
+                        .build());
+                return null;
+            });
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void record(List<Result> results) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> publishedRows = new ArrayList<>();
+        List<Object[]> retryRows = new ArrayList<>();
+        List<Object[]> releaseRows = new ArrayList<>();
+        for (Result result : results) {
+            OutboxEvent event = result.event();
+            switch (result.outcome()) {
+                case PUBLISHED -> publishedRows.add(new Object[]{now, event.getId()});
+                case SKIPPED -> releaseRows.add(new Object[]{event.getId()});
+                case FAILED -> {
+                    int attempts = event.getAttempts() + 1;
+                    boolean exhausted = attempts >= maxAttempts;
+                    long backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(attempts, 20));
+                    retryRows.add(new Object[]{
+                            (exhausted ? OutboxEvent.Status.FAILED : OutboxEvent.Status.PENDING).name(),
+                            attempts,
+                            Timestamp.valueOf(LocalDateTime.now().plus(Duration.ofSeconds(backoffSeconds))),
+                            result.error(),
+                            event.getId()
+                    });
+                    if (exhausted) {
+                        parked.increment();
+                        log.error("Outbox event {} ({}) parked after {} attempts", event.getId(), event.getEventType(), attempts);
+                    } else {
+                        retried.increment();
+                    }
+                }
+            }
+        }
+        if (!publishedRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(PUBLISHED_SQL, publishedRows);
+            published.add(publishedRows.size());
+        }
+        if (!retryRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETRY_SQL, retryRows);
+        }
+        if (!releaseRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(RELEASE_SQL, releaseRows);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${events.cleanup-interval-ms:3600000}", initialDelayString = "${events.cleanup-interval-ms:3600000}")
+    public void purgePublished() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int events = outboxEventRepository.deleteByStatusAndPublishedAtBefore(OutboxEvent.Status.PUBLISHED, before);
+        int markers = processedEventRepository.deleteByCreatedAtBefore(before);
+        if (events > 0 || markers > 0) {
+            log.info("Purged {} published outbox events and {} processed markers", events, markers);
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        LocalDateTime oldestPending = outboxEventRepository.findOldestCreatedAt(OutboxEvent.Status.PENDING);
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("pending", outboxEventRepository.countByStatus(OutboxEvent.Status.PENDING));
+        metrics.put("failed", outboxEventRepository.countByStatus(OutboxEvent.Status.FAILED));
+        metrics.put("lagMs", oldestPending != null ? Math.max(0, Duration.between(oldestPending, LocalDateTime.now()).toMillis()) : 0);
+        metrics.put("published", published.sum());
+        metrics.put("retried", retried.sum());
+        metrics.put("parked", parked.sum());
+        return metrics;
+    }
+
+    private static String aggregateOf(OutboxEvent event) {
+        return event.getAggregateType() + ":" + event.getAggregateId();
+    }
+}
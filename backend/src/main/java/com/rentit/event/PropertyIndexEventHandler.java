@@ -0,0 +1,70 @@
+package com.rentit.event;
+
+import com.rentit.entity.OutboxEvent;
+import com.rentit.entity.Property;
+import com.rentit.repository.PropertyAvailabilityRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.search.PropertyAvailabilityIndex;
+import com.rentit.search.PropertyGeoIndex;
+import com.rentit.search.PropertySearchIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the in-memory search, geo and availability indexes of every instance in step with committed
+ * property changes. The property is reloaded rather than taken from the payload, so a late or repeated
+ * event still applies the latest state.
+ */
+@Component
+@RequiredArgsConstructor
+public class PropertyIndexEventHandler implements EventHandler {
+
+    private final PropertyRepository propertyRepository;
+    private final PropertyAvailabilityRepository availabilityRepository;
+    private final PropertySearchIndex searchIndex;
+    private final PropertyGeoIndex geoIndex;
+    private final PropertyAvailabilityIndex availabilityIndex;
+
+    @Override
+    public String name() {
+        return "property-index";
+    }
+
+    @Override
+    public Set<OutboxEvent.Type> eventTypes() {
+        return Set.of(OutboxEvent.Type.PROPERTY_CHANGED);
+    }
+
+    @Override
+    public boolean idempotent() {
+        return true;
+    }
+
+    @Override
+    public boolean broadcast() {
+        return true;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Optional<Property> property = propertyRepository.findById(event.getAggregateId());
+        if (property.isEmpty() || property.get().getDeletedAt() != null) {
+            searchIndex.remove(event.getAggregateId());
+            geoIndex.remove(event.getAggregateId());
+            return;
+        }
+        searchIndex.index(property.get());
+        geoIndex.index(property.get());
+        availabilityIndex.replace(event.getAggregateId(), availabilityRepository.findByPropertyIdOrderByStartDate(event.getAggregateId()));
+    }
+
+    @Override
+    public void resync() {
+        searchIndex.rebuild();
+        geoIndex.rebuild();
+        availabilityIndex.rebuild();
+    }
+}
@@ -0,0 +1,154 @@
+package com.rentit.mapper;
+
+import com.rentit.dto.BookingDTO;
+import com.rentit.dto.BookingSummaryDTO;
+import com.rentit.dto.ImageDTO;
+import com.rentit.dto.PropertyDTO;
+import com.rentit.dto.ReviewDTO;
+import com.rentit.dto.UserDTO;
+import com.rentit.entity.Booking;
+import com.rentit.entity.Property;
+import com.rentit.entity.PropertyImage;
+import com.rentit.entity.Review;
+import com.rentit.entity.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written entity to DTO mapping for the read paths.
+ * Replaces the reflective ModelMapper calls on listing, search and booking responses.
+ */
+@Component
+public class DtoMapper {
+
+    public UserDTO toUserDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new UserDTO(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getRole(),
+                user.getPhone(),
+                user.getCreatedAt(),
+                user.getUpdatedAt()
+        );
+    }
+
+    public ImageDTO toImageDTO(PropertyImage image) {
+        return new ImageDTO(image.getId(), image.getUrl(), image.getIsPrimary());
+    }
+
+    public PropertyDTO toPropertyDTO(Property property) {
+        if (property == null) {
+            return null;
+        }
+        PropertyDTO dto = new PropertyDTO();
+        dto.setId(property.getId());
+        dto.setOwner(toUserDTO(property.getOwner()));
+        dto.setTitle(property.getTitle());
+        dto.setDescription(property.getDescription());
+        dto.setPropertyType(property.getPropertyType());
+        dto.setRentAmount(property.getRentAmount());
+        dto.setDeposit(property.getDeposit());
+        dto.setAddress(property.getAddress());
+        dto.setCity(property.getCity());
+        dto.setState(property.getState());
+        dto.setPincode(property.getPincode());
+        dto.setLatitude(property.getLatitude());
+        dto.setLongitude(property.getLongitude());
+        dto.setBedrooms(property.getBedrooms());
+        dto.setBathrooms(property.getBathrooms());
+        dto.setAreaSqft(property.getAreaSqft());
+        dto.setAmenities(property.getAmenities() != null ? new ArrayList<>(property.getAmenities()) : null);
+        dto.setImages(toImageDTOs(property.getImages()));
+        dto.setAvailabilityStatus(property.getAvailabilityStatus());
+        dto.setIsVerified(property.getIsVerified());
+        dto.setViews(property.getViews());
+        if (property.getRating() != null) {
+            dto.setAverageRating(property.getRating().getRatingAverage());
+            dto.setReviewCount(property.getRating().getRatingCount());
+        }
+        dto.setCreatedAt(property.getCreatedAt());
+        dto.setUpdatedAt(property.getUpdatedAt());
+        return dto;
+    }
+
+    public BookingDTO toBookingDTO(Booking booking) {
+        BookingDTO dto = new BookingDTO();
+        dto.setId(booking.getId());
+        dto.setProperty(toPropertyDTO(booking.getProperty()));
+        dto.setTenant(toUserDTO(booking.getTenant()));
+        dto.setOwner(toUserDTO(booking.getOwner()));
+        dto.setBookingStatus(booking.getBookingStatus());
+        dto.setCheckInDate(booking.getCheckInDate());
+        dto.setCheckOutDate(booking.getCheckOutDate());
+        dto.setBookingDate(booking.getBookingDate());
+        dto.setNotes(booking.getNotes());
+        dto.setCreatedAt(booking.getCreatedAt());
+        dto.setUpdatedAt(booking.getUpdatedAt());
+        return dto;
+    }
+
+    /**
+     * Slim booking projection for booking lists: carries only the property fields a list row shows,
+     * so the property's owner and amenities are never loaded.
+     */
+    public BookingSummaryDTO toBookingSummaryDTO(Booking booking) {
+        Property property = booking.getProperty();
+        BookingSummaryDTO dto = new BookingSummaryDTO();
+        dto.setId(booking.getId());
+        dto.setPropertyId(property.getId());
+        dto.setPropertyTitle(property.getTitle());
+        dto.setPropertyCity(property.getCity());
+        dto.setRentAmount(property.getRentAmount());
+        dto.setPrimaryImageUrl(primaryImageUrl(property.getImages()));
+        dto.setTenant(toUserDTO(booking.getTenant()));
+        dto.setOwner(toUserDTO(booking.getOwner()));
+        dto.setBookingStatus(booking.getBookingStatus());
+        dto.setCheckInDate(booking.getCheckInDate());
+        dto.setCheckOutDate(booking.getCheckOutDate());
+        dto.setBookingDate(booking.getBookingDate());
+        dto.setCreatedAt(booking.getCreatedAt());
+        dto.setUpdatedAt(booking.getUpdatedAt());
+        return dto;
+    }
+
+    public ReviewDTO toReviewDTO(Review review) {
+        ReviewDTO dto = new ReviewDTO();
+        dto.setId(review.getId());
+        dto.setPropertyId(review.getProperty().getId());
+        dto.setTenant(toUserDTO(review.getTenant()));
+        dto.setRating(review.getRating());
+        dto.setComment(review.getComment());
+        dto.setCreatedAt(review.getCreatedAt());
+        dto.setUpdatedAt(review.getUpdatedAt());
+        return dto;
+    }
+
+    private String primaryImageUrl(List<PropertyImage> images) {
+        if (images == null || images.isEmpty()) {
+            return null;
+        }
+        for (PropertyImage image : images) {
+            if (Boolean.TRUE.equals(image.getIsPrimary())) {
+                return image.getUrl();
+            }
+        }
+        return images.get(0).getUrl();
+    }
+
+    private List<ImageDTO> toImageDTOs(List<PropertyImage> images) {
+        if (images == null) {
+            return null;
+        }
+        List<ImageDTO> dtos = new ArrayList<>(images.size());
+        for (PropertyImage image : images) {
+            dtos.add(toImageDTO(image));
+        }
+        return dtos;
+    }
+}
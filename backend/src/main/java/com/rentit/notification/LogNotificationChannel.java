@@ -0,0 +1,35 @@
+package com.rentit.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Writes notifications to the application log instead of sending them, for development. Secrets such as
+ * password reset tokens are masked unless notifications.log.reveal-secrets is set, since logs are shipped
+ * and kept far beyond the recipient's reach.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "notifications.channel", havingValue = "log", matchIfMissing = true)
+public class LogNotificationChannel implements NotificationChannel {
+
+    @Value("${notifications.log.reveal-secrets:false}")
+    private boolean revealSecrets;
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    @Override
+    public void send(String recipient, List<Notification> notifications) {
+        for (Notification notification : notifications) {
+            log.info("Notification to {}: {}\n{}", recipient, notification.subject(),
+                    revealSecrets ? notification.body() : notification.maskedBody());
+        }
+    }
+}
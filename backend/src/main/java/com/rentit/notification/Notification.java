@@ -0,0 +1,28 @@
+package com.rentit.notification;
+
+import java.util.List;
+
+/**
+ * A message for one recipient, addressed by email. Secrets are parts of the body, such as one-time
+ * tokens, that only the recipient may see; they are masked wherever the message is logged or stored.
+ */
+public record Notification(String recipient, String subject, String body, List<String> secrets) {
+
+    private static final String MASK = "[redacted]";
+
+    public Notification(String recipient, String subject, String body) {
+        this(recipient, subject, body, List.of());
+    }
+
+    public boolean hasSecrets() {
+        return !secrets.isEmpty();
+    }
+
+    public String maskedBody() {
+        String masked = body;
+        for (String secret : secrets) {
+            masked = masked.replace(secret, MASK);
+        }
+        return masked;
+    }
+}
@@ -0,0 +1,17 @@
+package com.rentit.notification;
+
+import java.util.List;
+
+/**
+ * Delivers notifications to their recipient. Notifications queued for the same recipient at about
+ * the same time arrive together, so a channel may combine them into a single message.
+ */
+public interface NotificationChannel {
+
+    String name();
+
+    /**
+     * Sends all notifications for one recipient; throwing means none of them should be considered sent.
+     */
+    void send(String recipient, List<Notification> notifications) throws Exception;
+}
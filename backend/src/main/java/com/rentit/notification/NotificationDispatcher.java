@@ -0,0 +1,219 @@
+package com.rentit.notification;
+
+import com.rentit.entity.NotificationDeadLetter;
+import com.rentit.exception.ResourceNotFoundException;
+import com.rentit.repository.NotificationDeadLetterRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends notifications from a bounded in-memory queue on a background thread, so callers never wait on
+ * the mail server. Each round takes what has queued up (after a short linger), groups it by recipient and
+ * hands every group to the channel in one call. A failed group is retried with exponential backoff and
+ * moved to the dead-letter table after the last attempt, or when the application shuts down first.
+ * Dead letters keep the body with its secrets masked, so those carrying one cannot be resent.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationDispatcher {
+
+    private static final long MAX_BACKOFF_MS = 300_000;
+
+    private final NotificationChannel channel;
+    private final NotificationDeadLetterRepository deadLetterRepository;
+
+    @Value("${notifications.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${notifications.batch-size:100}")
+    private int batchSize;
+
+    @Value("${notifications.linger-ms:500}")
+    private long lingerMs;
+
+    @Value("${notifications.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.backoff-ms:2000}")
+    private long backoffMs;
+
+    private BlockingQueue<Notification> queue;
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private Thread worker;
+    private volatile boolean running;
+
+    private record Retry(String recipient, List<Notification> notifications, int attempts, long dueAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((Retry) other).dueAt);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        worker = new Thread(this::run, "notification-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Notification dispatcher started with the {} channel", channel.name());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(5000);
+
+        Map<String, List<Notification>> undelivered = new LinkedHashMap<>();
+        List<Notification> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        queued.forEach(notification -> undelivered.computeIfAbsent(notification.recipient(), r -> new ArrayList<>()).add(notification));
+        for (Retry retry : retries) {
+            undelivered.computeIfAbsent(retry.recipient(), r -> new ArrayList<>()).addAll(retry.notifications());
+        }
+        undelivered.forEach((recipient, notifications) -> deadLetter(notifications, 0, "Not delivered before shutdown"));
+    }
+
+    /**
+     * Queues the notifications, all or none. Returns false when the queue has no room for all of them;
+     * the caller is expected to try again later.
+     */
+    public boolean enqueueAll(List<Notification> notifications) {
+        // Producers are serialized here and the worker only takes, so the room cannot shrink in between.
+        // A lock rather than synchronized, so a waiting virtual thread does not pin its carrier.
+        enqueueLock.lock();
+        try {
+            if (queue.remainingCapacity() < notifications.size()) {
+                rejected.add(notifications.size());
+                return false;
+            }
+            notifications.forEach(queue::add);
+            return true;
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    @Transactional
+    public void resendDeadLetter(Long id) {
+        NotificationDeadLetter deadLetter = deadLetterRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Dead letter not found"));
+        if (deadLetter.getRedacted()) {
+            throw new RuntimeException("Notification carried a one-time link and cannot be resent; the recipient has to request a new one");
+        }
+        if (!enqueueAll(List.of(new Notification(deadLetter.getRecipient(), deadLetter.getSubject(), deadLetter.getBody())))) {
+            throw new RuntimeException("Notification queue is full, try again later");
+        }
+        deadLetterRepository.delete(deadLetter);
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("channel", channel.name());
+        metrics.put("queued", queue.size());
+        metrics.put("awaitingRetry", retries.size());
+        metrics.put("sent", sent.sum());
+        metrics.put("retried", retried.sum());
+        metrics.put("deadLettered", deadLettered.sum());
+        metrics.put("rejected", rejected.sum());
+        return metrics;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<Notification> batch = new ArrayList<>();
+                Notification first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    // Give related notifications (e.g. both sides of a booking) a moment to arrive
+                    Thread.sleep(lingerMs);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+
+                Map<String, List<Notification>> byRecipient = new LinkedHashMap<>();
+                batch.forEach(notification -> byRecipient.computeIfAbsent(notification.recipient(), r -> new ArrayList<>()).add(notification));
+                byRecipient.forEach((recipient, notifications) -> deliver(recipient, notifications, 0));
+
+                for (Retry retry = retries.poll(); retry != null; retry = retries.poll()) {
+                    deliver(retry.recipient(), retry.notifications(), retry.attempts());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Notification dispatch round failed", e);
+            }
+        }
+    }
+
+    private void deliver(String recipient, List<Notification> notifications, int previousAttempts) {
+        try {
+            channel.send(recipient, notifications);
+            sent.add(notifications.size());
+        } catch (Exception e) {
+            int attempts = previousAttempts + 1;
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (attempts >= maxAttempts) {
+                log.error("Giving up on {} notification(s) to {} after {} attempts: {}", notifications.size(), recipient, attempts, error);
+                deadLetter(notifications, attempts, error);
+                return;
+            }
+            long delayMs = Math.min(MAX_BACKOFF_MS, backoffMs << Math.min(attempts - 1, 20));
+            log.warn("Sending {} notification(s) to {} failed, retrying in {} ms: {}", notifications.size(), recipient, delayMs, error);
+            retries.add(new Retry(recipient, notifications, attempts, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs)));
+            retried.add(notifications.size());
+        }
+    }
+
+    private void deadLetter(List<Notification> notifications, int attempts, String error) {
+        String lastError = error.length() > 500 ? error.substring(0, 500) : error;
+        try {
+            deadLetterRepository.saveAll(notifications.stream()
+                    .map(notification -> NotificationDeadLetter.builder()
+                            .recipient(notification.recipient())
+                            .subject(notification.subject())
+                            .body(notification.maskedBody())
+                            .redacted(notification.hasSecrets())
+                            .attempts(attempts)
+                            .lastError(lastError)
+                            .build())
+                    .toList());
+            deadLettered.add(notifications.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to store {} undeliverable notification(s) for {}", notifications.size(), notifications.get(0).recipient(), e);
+        }
+    }
+}
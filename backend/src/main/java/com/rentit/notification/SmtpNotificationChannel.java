@@ -0,0 +1,49 @@
+package com.rentit.notification;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Sends notifications as plain-text email through the server configured with {@code spring.mail.*}.
+ * Several notifications for one recipient go out as a single digest.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notifications.channel", havingValue = "smtp")
+public class SmtpNotificationChannel implements NotificationChannel {
+
+    private final JavaMailSender mailSender;
+
+    @Value("${notifications.from:no-reply@rentit.com}")
+    private String from;
+
+    @Override
+    public String name() {
+        return "smtp";
+    }
+
+    @Override
+    public void send(String recipient, List<Notification> notifications) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(recipient);
+        if (notifications.size() == 1) {
+            message.setSubject(notifications.get(0).subject());
+            message.setText(notifications.get(0).body());
+        } else {
+            StringBuilder text = new StringBuilder();
+            for (Notification notification : notifications) {
+                text.append(notification.subject()).append("\n\n").append(notification.body()).append("\n\n---\n\n");
+            }
+            message.setSubject("You have " + notifications.size() + " updates from Rentit");
+            message.setText(text.toString());
+        }
+        mailSender.send(message);
+    }
+}
@@ -1,20 +1,52 @@
 package com.rentit.repository;
 
 import com.rentit.entity.Booking;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     
+    @EntityGraph(attributePaths = {"property", "tenant", "owner"})
     Page<Booking> findByTenantId(Long tenantId, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"property", "tenant", "owner"})
     Page<Booking> findByOwnerId(Long ownerId, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"property", "tenant", "owner"})
+    Slice<Booking> findByOwnerIdOrderByCreatedAtDescIdDesc(Long ownerId, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"property", "tenant", "owner"})
+    @Query("SELECT b FROM Booking b WHERE b.owner.id = :ownerId " +
+           "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Booking> findByOwnerIdBefore(
+        @Param("ownerId") Long ownerId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    // Property stays lazy so that approve and cancel load it fresh under its row lock
+    @EntityGraph(attributePaths = {"tenant", "owner"})
+    Optional<Booking> findWithPartiesById(Long id);
+    
     Optional<Booking> findByPropertyIdAndTenantIdAndBookingStatusIn(
         Long propertyId, 
         Long tenantId, 
@@ -22,4 +54,19 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     );
     
     Long countByBookingStatus(Booking.BookingStatus status);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b FROM Booking b JOIN FETCH b.property JOIN FETCH b.tenant JOIN FETCH b.owner ORDER BY b.id")
+    Stream<Booking> streamAll();
+
+    @Query("SELECT b FROM Booking b WHERE b.property.id = :propertyId AND b.bookingStatus = :status " +
+           "AND (b.checkOutDate IS NULL OR b.checkOutDate > :after) ORDER BY b.checkInDate")
+    List<Booking> findByPropertyIdAndStatusEndingAfter(
+        @Param("propertyId") Long propertyId,
+        @Param("status") Booking.BookingStatus status,
+        @Param("after") LocalDate after
+    );
+
+    @Query("SELECT DISTINCT b.property.id FROM Booking b WHERE b.bookingStatus = :status")
+    List<Long> findPropertyIdsByBookingStatus(@Param("status") Booking.BookingStatus status);
 }
@@ -0,0 +1,48 @@
+package com.rentit.repository;
+
+import com.rentit.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Pending events that are due and not leased to an instance, in id order. Events queued behind an
+     * earlier pending event of the same aggregate that is backing off or leased are left out, so they do
+     * not fill the page while they have to wait anyway.
+     */
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :status" +
+            " AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now)" +
+            " AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)" +
+            " AND NOT EXISTS (SELECT b.id FROM OutboxEvent b WHERE b.aggregateType = e.aggregateType" +
+            " AND b.aggregateId = e.aggregateId AND b.status = :status AND b.id < e.id" +
+            " AND (b.nextAttemptAt > :now OR b.claimedUntil >= :now))" +
+            " ORDER BY e.id")
+    List<OutboxEvent> findDue(@Param("status") OutboxEvent.Status status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<OutboxEvent> findByIdBetweenOrderByIdAsc(Long from, Long to);
+
+    @Query("SELECT MAX(e.id) FROM OutboxEvent e WHERE e.createdAt < :before")
+    Long findMaxIdCreatedBefore(@Param("before") LocalDateTime before);
+
+    long countByStatus(OutboxEvent.Status status);
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") OutboxEvent.Status status);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = :status AND e.publishedAt < :before")
+    int deleteByStatusAndPublishedAtBefore(@Param("status") OutboxEvent.Status status, @Param("before") LocalDateTime before);
+}
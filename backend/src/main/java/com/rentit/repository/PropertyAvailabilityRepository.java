@@ -0,0 +1,32 @@
+package com.rentit.repository;
+
+import com.rentit.entity.PropertyAvailability;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+@Repository
+public interface PropertyAvailabilityRepository extends JpaRepository<PropertyAvailability, Long> {
+
+    List<PropertyAvailability> findByPropertyIdOrderByStartDate(Long propertyId);
+
+    boolean existsByPropertyIdAndStartDateLessThanAndEndDateGreaterThan(Long propertyId, LocalDate end, LocalDate start);
+
+    @Modifying
+    @Query("DELETE FROM PropertyAvailability a WHERE a.propertyId = :propertyId")
+    void deleteByPropertyId(@Param("propertyId") Long propertyId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT a FROM PropertyAvailability a WHERE a.endDate > :after ORDER BY a.propertyId, a.startDate")
+    Stream<PropertyAvailability> streamEndingAfter(@Param("after") LocalDate after);
+}
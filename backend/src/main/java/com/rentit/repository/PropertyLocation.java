@@ -0,0 +1,10 @@
+package com.rentit.repository;
+
+/**
+ * Id and coordinates of a property, read without loading the full entity.
+ */
+public interface PropertyLocation {
+    Long getId();
+    Double getLatitude();
+    Double getLongitude();
+}
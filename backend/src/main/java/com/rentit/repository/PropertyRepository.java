@@ -1,43 +1,102 @@
 package com.rentit.repository;
 
 import com.rentit.entity.Property;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PropertyRepository extends JpaRepository<Property, Long>, JpaSpecificationExecutor<Property> {
     
+    @EntityGraph(attributePaths = "owner")
     Page<Property> findByDeletedAtIsNull(Pageable pageable);
     
+    @EntityGraph(attributePaths = "owner")
+    Slice<Property> findByDeletedAtIsNullOrderByCreatedAtDescIdDesc(Pageable pageable);
+    
+    @EntityGraph(attributePaths = "owner")
+    @Query("SELECT p FROM Property p WHERE p.deletedAt IS NULL " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Property> findLiveBefore(
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    @EntityGraph(attributePaths = "owner")
     Page<Property> findByOwnerIdAndDeletedAtIsNull(Long ownerId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "owner")
     Page<Property> findByIsVerifiedFalseAndDeletedAtIsNull(Pageable pageable);
     
+    @EntityGraph(attributePaths = "owner")
     Optional<Property> findByIdAndDeletedAtIsNull(Long id);
     
+    @EntityGraph(attributePaths = "owner")
+    List<Property> findByIdInAndDeletedAtIsNull(Collection<Long> ids);
+    
+    Slice<Property> findByDeletedAtIsNullAndIdGreaterThan(Long id, Pageable pageable);
+    
+    @Query("SELECT p.id AS id, p.latitude AS latitude, p.longitude AS longitude FROM Property p " +
+           "WHERE p.deletedAt IS NULL AND p.latitude IS NOT NULL AND p.longitude IS NOT NULL " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<PropertyLocation> findLocationsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT p.id AS id, p.latitude AS latitude, p.longitude AS longitude FROM Property p " +
+           "WHERE p.deletedAt IS NULL " +
+           "AND p.latitude BETWEEN :minLat AND :maxLat " +
+           "AND p.longitude BETWEEN :minLng AND :maxLng")
+    List<PropertyLocation> findLocationsWithin(
+        @Param("minLat") Double minLat,
+        @Param("maxLat") Double maxLat,
+        @Param("minLng") Double minLng,
+        @Param("maxLng") Double maxLng
+    );
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Property> findWithLockById(Long id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Property p WHERE p.id > :afterId ORDER BY p.id")
+    List<Property> findWithLockByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+    
     Long countByDeletedAtIsNull();
     
     Long countByAvailabilityStatusAndDeletedAtIsNull(Property.AvailabilityStatus status);
     
-    @Query("SELECT p FROM Property p WHERE p.deletedAt IS NULL " +
-           "AND (:city IS NULL OR LOWER(p.city) LIKE LOWER(CONCAT('%', :city, '%'))) " +
-           "AND (:minPrice IS NULL OR p.rentAmount >= :minPrice) " +
-           "AND (:maxPrice IS NULL OR p.rentAmount <= :maxPrice) " +
-           "AND (:propertyType IS NULL OR p.propertyType = :propertyType) " +
-           "AND (:bedrooms IS NULL OR p.bedrooms >= :bedrooms)")
-    Page<Property> searchProperties(
-        @Param("city") String city,
-        @Param("minPrice") Double minPrice,
-        @Param("maxPrice") Double maxPrice,
-        @Param("propertyType") Property.PropertyType propertyType,
-        @Param("bedrooms") Integer bedrooms,
-        Pageable pageable
-    );
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    Page<Property> findAll(Specification<Property> spec, Pageable pageable);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p FROM Property p JOIN FETCH p.owner WHERE p.deletedAt IS NULL ORDER BY p.id")
+    Stream<Property> streamAllLive();
+    
+    // Fetch joins initialize the collections of instances already in the persistence context
+    @Query("SELECT DISTINCT p FROM Property p LEFT JOIN FETCH p.images WHERE p.id IN :ids")
+    List<Property> fetchImagesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT DISTINCT p FROM Property p LEFT JOIN FETCH p.amenities WHERE p.id IN :ids")
+    List<Property> fetchAmenitiesByIdIn(@Param("ids") Collection<Long> ids);
 }
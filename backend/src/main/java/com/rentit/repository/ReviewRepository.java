@@ -1,24 +1,59 @@
 package com.rentit.repository;
 
 import com.rentit.entity.Review;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     
     Page<Review> findByPropertyId(Long propertyId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "tenant")
+    Optional<Review> findWithTenantById(Long id);
+    
+    @EntityGraph(attributePaths = "tenant")
+    Slice<Review> findByPropertyIdOrderByCreatedAtDescIdDesc(Long propertyId, Pageable pageable);
+    
+    @EntityGraph(attributePaths = "tenant")
+    @Query("SELECT r FROM Review r WHERE r.property.id = :propertyId " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    Slice<Review> findByPropertyIdBefore(
+        @Param("propertyId") Long propertyId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
     Optional<Review> findByPropertyIdAndTenantId(Long propertyId, Long tenantId);
     
     @Query("SELECT AVG(r.rating) FROM Review r WHERE r.property.id = :propertyId")
     Double getAverageRatingByPropertyId(@Param("propertyId") Long propertyId);
     
     Long countByPropertyId(Long propertyId);
+    
+    @Query("SELECT r.property.id, r.rating, COUNT(r) FROM Review r WHERE r.property.id IN :propertyIds " +
+           "GROUP BY r.property.id, r.rating")
+    List<Object[]> countRatingsByPropertyIdIn(@Param("propertyIds") Collection<Long> propertyIds);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r FROM Review r JOIN FETCH r.tenant ORDER BY r.id")
+    Stream<Review> streamAll();
 }
@@ -0,0 +1,29 @@
+package com.rentit.repository;
+
+import com.rentit.entity.UploadedImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+@Repository
+public interface UploadedImageRepository extends JpaRepository<UploadedImage, Long> {
+
+    boolean existsByContentHashAndUploaderId(String contentHash, Long uploaderId);
+
+    boolean existsByContentHash(String contentHash);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadedImage u WHERE u.contentHash = :contentHash AND u.uploaderId = :uploaderId")
+    int deleteByContentHashAndUploaderId(@Param("contentHash") String contentHash, @Param("uploaderId") Long uploaderId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadedImage u WHERE u.contentHash IN :contentHashes")
+    int deleteByContentHashIn(@Param("contentHashes") Collection<String> contentHashes);
+}
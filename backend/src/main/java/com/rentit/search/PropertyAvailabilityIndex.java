@@ -0,0 +1,197 @@
+package com.rentit.search;
+
+import com.rentit.entity.PropertyAvailability;
+import com.rentit.repository.PropertyAvailabilityRepository;
+import com.rentit.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory calendar of taken dates per property, mirroring the property_availability table.
+ * Each property maps to a sorted array of disjoint [start, end) ranges packed as epoch days, so a
+ * free-between check is one binary search. Arrays are replaced whole on change, so reads take no lock.
+ * Ranges that ended before the index was built are left out. A rebuild loads into a fresh map and swaps
+ * it in, replaying any replacement that committed while it was loading, so readers keep the old calendar
+ * meanwhile and no update is lost.
+ */
+@Slf4j
+@Component
+public class PropertyAvailabilityIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final PropertyAvailabilityRepository availabilityRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${search.availability.enabled:true}")
+    private boolean enabled;
+
+    private volatile Map<Long, int[]> rangesByProperty = new ConcurrentHashMap<>();
+
+    // Replacements that committed while a rebuild was loading, replayed onto its map before the swap
+    private Map<Long, int[]> replacedDuringRebuild;
+    private final ReentrantLock replaceLock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile boolean ready;
+
+    public PropertyAvailabilityIndex(PropertyAvailabilityRepository availabilityRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.availabilityRepository = availabilityRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            setReplacedDuringRebuild(new HashMap<>());
+            Map<Long, int[]> loaded = new ConcurrentHashMap<>();
+            long ranges;
+            try {
+                ranges = load(loaded);
+            } catch (RuntimeException e) {
+                setReplacedDuringRebuild(null);
+                throw e;
+            }
+
+            replaceLock.lock();
+            try {
+                replacedDuringRebuild.forEach((propertyId, packed) -> apply(loaded, propertyId, packed));
+                rangesByProperty = loaded;
+                replacedDuringRebuild = null;
+            } finally {
+                replaceLock.unlock();
+            }
+            ready = true;
+            log.info("Property availability index built with {} ranges for {} properties in {} ms",
+                    ranges, loaded.size(), System.currentTimeMillis() - start);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Streams the ranges that have not ended yet into the map, grouped by property, and returns how many there were.
+     */
+    private long load(Map<Long, int[]> into) {
+        return readOnlyTransaction.execute(status -> {
+            long count = 0;
+            Long currentProperty = null;
+            int[] packed = new int[8];
+            int size = 0;
+            try (Stream<PropertyAvailability> rows = availabilityRepository.streamEndingAfter(LocalDate.now().minusDays(1))) {
+                for (PropertyAvailability row : (Iterable<PropertyAvailability>) rows::iterator) {
+                    if (!row.getPropertyId().equals(currentProperty)) {
+                        if (currentProperty != null) {
+                            into.put(currentProperty, Arrays.copyOf(packed, size));
+                        }
+                        currentProperty = row.getPropertyId();
+                        size = 0;
+                    }
+                    if (size == packed.length) {
+                        packed = Arrays.copyOf(packed, size * 2);
+                    }
+                    packed[size++] = (int) row.getStartDate().toEpochDay();
+                    packed[size++] = (int) row.getEndDate().toEpochDay();
+                    count++;
+                }
+            }
+            if (currentProperty != null) {
+                into.put(currentProperty, Arrays.copyOf(packed, size));
+            }
+            return count;
+        });
+    }
+
+    private void setReplacedDuringRebuild(Map<Long, int[]> buffer) {
+        replaceLock.lock();
+        try {
+            replacedDuringRebuild = buffer;
+        } finally {
+            replaceLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether no taken range overlaps [from, to).
+     */
+    public boolean isFree(long propertyId, LocalDate from, LocalDate to) {
+        int[] ranges = rangesByProperty.getOrDefault(propertyId, NONE);
+        if (ranges.length == 0) {
+            return true;
+        }
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        // Last range starting before the requested end; the ranges are disjoint, so only it can overlap
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ranges[mid * 2] < toDay) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return candidate < 0 || ranges[candidate * 2 + 1] <= fromDay;
+    }
+
+    /**
+     * Queues the property's new ranges to replace its current ones once the surrounding transaction commits.
+     */
+    public void replace(Long propertyId, List<PropertyAvailability> ranges) {
+        if (!enabled) {
+            return;
+        }
+        int[] packed = new int[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            packed[i * 2] = (int) ranges.get(i).getStartDate().toEpochDay();
+            packed[i * 2 + 1] = (int) ranges.get(i).getEndDate().toEpochDay();
+        }
+        TransactionUtils.afterCommit(() -> {
+            replaceLock.lock();
+            try {
+                apply(rangesByProperty, propertyId, packed);
+                if (replacedDuringRebuild != null) {
+                    replacedDuringRebuild.put(propertyId, packed);
+                }
+            } finally {
+                replaceLock.unlock();
+            }
+        });
+    }
+
+    private static void apply(Map<Long, int[]> ranges, Long propertyId, int[] packed) {
+        if (packed.length == 0) {
+            ranges.remove(propertyId);
+        } else {
+            ranges.put(propertyId, packed);
+        }
+    }
+}
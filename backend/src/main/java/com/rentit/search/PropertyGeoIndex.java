@@ -0,0 +1,336 @@
+package com.rentit.search;
+
+import com.rentit.entity.Property;
+import com.rentit.repository.PropertyLocation;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Grid-cell index over property coordinates for radius searches.
+ * Coordinates are bucketed into fixed-size lat/lng cells; a query visits only the cells that overlap
+ * the radius' bounding box, nearest rings first, and keeps the closest hits by haversine distance.
+ * Until the index is built, the bounding box is pushed down to SQL instead.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PropertyGeoIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private final PropertyRepository propertyRepository;
+
+    @Value("${search.geo.cell-degrees:0.1}")
+    private double cellDegrees;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Set<Long>> idsByCell = new HashMap<>();
+    private final Map<Long, double[]> positions = new HashMap<>();
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ready = false;
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            idsByCell.clear();
+            positions.clear();
+            PageRequest batchRequest = PageRequest.of(0, REBUILD_BATCH_SIZE);
+            long lastId = 0L;
+            List<PropertyLocation> batch;
+            do {
+                batch = propertyRepository.findLocationsAfter(lastId, batchRequest);
+                for (PropertyLocation location : batch) {
+                    put(location.getId(), location.getLatitude(), location.getLongitude());
+                    lastId = location.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+        log.info("Property geo index built with {} locations in {} ms",
+                positions.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Queues the property's coordinates to be applied once the surrounding transaction commits.
+     */
+    public void index(Property property) {
+        Long id = property.getId();
+        Double lat = property.getDeletedAt() == null ? property.getLatitude() : null;
+        Double lng = property.getDeletedAt() == null ? property.getLongitude() : null;
+        TransactionUtils.afterCommit(() -> write(id, lat, lng));
+    }
+
+    public void remove(Long propertyId) {
+        TransactionUtils.afterCommit(() -> write(propertyId, null, null));
+    }
+
+    /**
+     * Returns the ids of properties within {@code radiusKm} of the point, nearest first.
+     * Only the hits up to the end of the requested page are kept, in a bounded heap. Cells are visited
+     * in rings around the point's cell; once the heap is full and no point in the next ring can be
+     * nearer than its farthest entry, the remaining rings are only counted for the total, taking whole
+     * cells that lie inside the radius without measuring each point.
+     */
+    public Page<Long> nearby(double lat, double lng, double radiusKm, Pageable pageable) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double lngDelta = cosLat < 1e-6 ? 360 : radiusKm / (KM_PER_DEGREE * cosLat);
+        double minLat = Math.max(-90, lat - latDelta);
+        double maxLat = Math.min(90, lat + latDelta);
+        boolean wraps = lngDelta >= 180 || lng - lngDelta < -180 || lng + lngDelta > 180;
+        double minLng = wraps ? -180 : lng - lngDelta;
+        double maxLng = wraps ? 180 : lng + lngDelta;
+
+        int wanted = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        Nearest nearest = new Nearest(wanted);
+        if (ready) {
+            lock.readLock().lock();
+            try {
+                long cellsToVisit = (cell(maxLat) - cell(minLat) + 1) * (cell(maxLng) - cell(minLng) + 1);
+                if (cellsToVisit > idsByCell.size()) {
+                    positions.forEach((id, point) -> nearest.offer(id, haversineKm(lat, lng, point[0], point[1]), radiusKm));
+                } else if (wraps || lngDelta + cellDegrees >= 180) {
+                    // Near the poles or the antimeridian the ring bounds do not hold; visit the box in order
+                    for (long latCell = cell(minLat); latCell <= cell(maxLat); latCell++) {
+                        for (long lngCell = cell(minLng); lngCell <= cell(maxLng); lngCell++) {
+                            offerCell(nearest, latCell, lngCell, lat, lng, radiusKm);
+                        }
+                    }
+                } else {
+                    searchRings(nearest, lat, lng, radiusKm, minLat, maxLat, minLng, maxLng);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        } else {
+            for (PropertyLocation location : propertyRepository.findLocationsWithin(minLat, maxLat, minLng, maxLng)) {
+                nearest.offer(location.getId(),
+                        haversineKm(lat, lng, location.getLatitude(), location.getLongitude()), radiusKm);
+            }
+        }
+
+        List<Hit> ranked = nearest.ranked();
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        List<Long> pageIds = new ArrayList<>(ranked.size() - from);
+        for (Hit hit : ranked.subList(from, ranked.size())) {
+            pageIds.add(hit.id());
+        }
+        return new PageImpl<>(pageIds, pageable, nearest.total);
+    }
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void searchRings(Nearest nearest, double lat, double lng, double radiusKm,
+                             double minLat, double maxLat, double minLng, double maxLng) {
+        long centerLat = cell(lat);
+        long centerLng = cell(lng);
+        long minLatCell = cell(minLat);
+        long maxLatCell = cell(maxLat);
+        long minLngCell = cell(minLng);
+        long maxLngCell = cell(maxLng);
+        long lastRing = Math.max(Math.max(centerLat - minLatCell, maxLatCell - centerLat),
+                Math.max(centerLng - minLngCell, maxLngCell - centerLng));
+        // Edge cells reach up to a cell past the box
+        double maxAbsLat = Math.min(90, Math.max(Math.abs(minLat), Math.abs(maxLat)) + cellDegrees);
+
+        boolean ranking = true;
+        for (long ring = 0; ring <= lastRing; ring++) {
+            if (ranking && nearest.isFull() && ringMinDistanceKm(ring, maxAbsLat) > nearest.farthestKm()) {
+                ranking = false;
+            }
+            for (long latCell = Math.max(centerLat - ring, minLatCell); latCell <= Math.min(centerLat + ring, maxLatCell); latCell++) {
+                boolean edgeRow = Math.abs(latCell - centerLat) == ring;
+                long step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (long lngCell = centerLng - ring; lngCell <= centerLng + ring; lngCell += step) {
+                    if (lngCell < minLngCell || lngCell > maxLngCell) {
+                        continue;
+                    }
+                    if (ranking) {
+                        offerCell(nearest, latCell, lngCell, lat, lng, radiusKm);
+                    } else {
+                        countCell(nearest, latCell, lngCell, lat, lng, radiusKm);
+                    }
+                }
+            }
+        }
+    }
+
+    private void offerCell(Nearest nearest, long latCell, long lngCell, double lat, double lng, double radiusKm) {
+        Set<Long> ids = idsByCell.get(cellKey(latCell, lngCell));
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            double[] point = positions.get(id);
+            nearest.offer(id, haversineKm(lat, lng, point[0], point[1]), radiusKm);
+        }
+    }
+
+    private void countCell(Nearest nearest, long latCell, long lngCell, double lat, double lng, double radiusKm) {
+        Set<Long> ids = idsByCell.get(cellKey(latCell, lngCell));
+        if (ids == null) {
+            return;
+        }
+        if (cellWithinKm(latCell, lngCell, lat, lng) <= radiusKm) {
+            nearest.total += ids.size();
+            return;
+        }
+        for (Long id : ids) {
+            double[] point = positions.get(id);
+            if (haversineKm(lat, lng, point[0], point[1]) <= radiusKm) {
+                nearest.total++;
+            }
+        }
+    }
+
+    /**
+     * Distance to the cell's farthest corner. Away from the antipode, distance along a cell edge peaks at
+     * one of its ends, so every point of the cell is at most this far.
+     */
+    private double cellWithinKm(long latCell, long lngCell, double lat, double lng) {
+        double south = latCell * cellDegrees;
+        double west = lngCell * cellDegrees;
+        return Math.max(
+                Math.max(haversineKm(lat, lng, south, west), haversineKm(lat, lng, south, west + cellDegrees)),
+                Math.max(haversineKm(lat, lng, south + cellDegrees, west), haversineKm(lat, lng, south + cellDegrees, west + cellDegrees)));
+    }
+
+    /**
+     * Lower bound on the distance to any point in the given ring of cells. Such a point is at least
+     * {@code ring - 1} cells away in latitude or in longitude; the longitude bound uses the highest
+     * latitude in the search box, where a degree of longitude is shortest.
+     */
+    private double ringMinDistanceKm(long ring, double maxAbsLat) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double degrees = (ring - 1) * cellDegrees;
+        double byLat = Math.toRadians(degrees) * EARTH_RADIUS_KM;
+        double byLng = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1,
+                Math.cos(Math.toRadians(maxAbsLat)) * Math.sin(Math.toRadians(Math.min(degrees, 180)) / 2)));
+        return Math.min(byLat, byLng);
+    }
+
+    private void write(Long id, Double lat, Double lng) {
+        lock.writeLock().lock();
+        try {
+            put(id, lat, lng);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Long id, Double lat, Double lng) {
+        double[] previous = positions.remove(id);
+        if (previous != null) {
+            long key = cellKey(cell(previous[0]), cell(previous[1]));
+            Set<Long> ids = idsByCell.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    idsByCell.remove(key);
+                }
+            }
+        }
+        if (lat == null || lng == null) {
+            return;
+        }
+        positions.put(id, new double[]{lat, lng});
+        idsByCell.computeIfAbsent(cellKey(cell(lat), cell(lng)), k -> new HashSet<>()).add(id);
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long cellKey(long latCell, long lngCell) {
+        return (latCell << 32) ^ (lngCell & 0xffffffffL);
+    }
+
+    private record Hit(Long id, double distanceKm) {
+    }
+
+    /**
+     * The nearest hits seen so far, at most {@code capacity} of them, plus a count of every hit.
+     */
+    private static final class Nearest {
+
+        private static final Comparator<Hit> NEAREST_FIRST =
+                Comparator.comparingDouble(Hit::distanceKm).thenComparing(Hit::id);
+
+        private final int capacity;
+        private final PriorityQueue<Hit> farthestFirst;
+        private long total;
+
+        private Nearest(int capacity) {
+            this.capacity = capacity;
+            this.farthestFirst = new PriorityQueue<>(Math.max(1, Math.min(capacity, 1024)), NEAREST_FIRST.reversed());
+        }
+
+        void offer(Long id, double distanceKm, double radiusKm) {
+            if (distanceKm > radiusKm) {
+                return;
+            }
+            total++;
+            if (capacity == 0) {
+                return;
+            }
+            Hit hit = new Hit(id, distanceKm);
+            if (farthestFirst.size() < capacity) {
+                farthestFirst.add(hit);
+            } else if (NEAREST_FIRST.compare(hit, farthestFirst.peek()) < 0) {
+                farthestFirst.poll();
+                farthestFirst.add(hit);
+            }
+        }
+
+        boolean isFull() {
+            return capacity > 0 && farthestFirst.size() == capacity;
+        }
+
+        double farthestKm() {
+            return farthestFirst.peek().distanceKm();
+        }
+
+        List<Hit> ranked() {
+            List<Hit> ranked = new ArrayList<>(farthestFirst);
+            ranked.sort(NEAREST_FIRST);
+            return ranked;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.rentit.search;
+
+import com.rentit.entity.Property;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process index over the searchable columns of live properties.
+ * Each property gets a dense slot, reused once the property is removed; location tokens map to slot
+ * bitsets, type and status have one bitset per value, and rent, bedrooms and creation time are kept in
+ * primitive arrays by slot. Location words match anywhere inside a token, found through an n-gram map
+ * of the token vocabulary rather than by scanning it. PropertySpecifications is the database equivalent
+ * and must stay in step with the filters here.
+ * Built once at startup (ApplicationReadyEvent). After that, PropertyIndexEventHandler keeps it in sync on
+ * every instance by applying the PROPERTY_CHANGED outbox events that OutboxRelay broadcasts, whichever
+ * instance wrote them. A relay that falls behind, or events that commit out of id order, are caught up
+ * from the relay's broadcast cursor rather than lost.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PropertySearchIndex {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int GRAM_LENGTH = 3;
+
+    private final PropertyRepository propertyRepository;
+    private final PropertyAvailabilityIndex availabilityIndex;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final Map<String, BitSet> slotsByToken = new HashMap<>();
+    private final Map<String, Set<String>> tokensByGram = new HashMap<>();
+    private final Map<Property.PropertyType, BitSet> slotsByType = new EnumMap<>(Property.PropertyType.class);
+    private final Map<Property.AvailabilityStatus, BitSet> slotsByStatus = new EnumMap<>(Property.AvailabilityStatus.class);
+    private final BitSet live = new BitSet();
+
+    private long[] ids = new long[1024];
+    private long[] createdAt = new long[1024];
+    private double[] rentAmount = new double[1024];
+    private int[] bedrooms = new int[1024];
+    private double[] averageRating = new double[1024];
+    private String[][] tokens = new String[1024][];
+    private int slotCount;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        ready = false;
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            clear();
+            Pageable batchRequest = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("id"));
+            long lastId = 0L;
+            Slice<Property> batch;
+            do {
+                batch = propertyRepository.findByDeletedAtIsNullAndIdGreaterThan(lastId, batchRequest);
+                for (Property property : batch) {
+                    apply(Entry.of(property));
+                    lastId = property.getId();
+                }
+            } while (batch.hasNext());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+        log.info("Property search index built with {} properties in {} ms",
+                live.cardinality(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Queues the property's current state to be applied once the surrounding transaction commits.
+     */
+    public void index(Property property) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = property.getDeletedAt() == null ? Entry.of(property) : Entry.removed(property.getId());
+        TransactionUtils.afterCommit(() -> write(entry));
+    }
+
+    public void remove(Long propertyId) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> write(Entry.removed(propertyId)));
+    }
+
+    /**
+     * Returns the ids of matching properties in page order, or empty when the index cannot answer
+     * the query (not built yet, or sorted on a key the index does not hold).
+     */
+    public Optional<Page<Long>> search(
+            String location,
+            Double minPrice,
+            Double maxPrice,
+            Property.PropertyType propertyType,
+            Integer minBedrooms,
+            Property.AvailabilityStatus status,
+            LocalDate availableFrom,
+            LocalDate availableTo,
+            Pageable pageable
+    ) {
+        boolean datesFiltered = availableFrom != null && availableTo != null;
+        if (!ready || (datesFiltered && !availabilityIndex.isReady())) {
+            return Optional.empty();
+        }
+        Comparator<Integer> order = comparator(pageable.getSort());
+        if (order == null) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = (BitSet) live.clone();
+            if (propertyType != null) {
+                candidates.and(slotsByType.getOrDefault(propertyType, new BitSet()));
+            }
+            if (status != null) {
+                candidates.and(slotsByStatus.getOrDefault(status, new BitSet()));
+            }
+            if (location != null && !location.isBlank()) {
+                for (String queryToken : tokenize(location)) {
+                    candidates.and(slotsMatching(queryToken));
+                }
+            }
+
+            int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+            int wanted = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+            // The heap only ever holds matching candidates, so size it by those rather than by the requested depth
+            PriorityQueue<Integer> top = new PriorityQueue<>(
+                    Math.max(1, Math.min(wanted, Math.min(candidates.cardinality(), 1024))), order.reversed());
+            int total = 0;
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                if (minPrice != null && rentAmount[slot] < minPrice) {
+                    continue;
+                }
+                if (maxPrice != null && rentAmount[slot] > maxPrice) {
+                    continue;
+                }
+                if (minBedrooms != null && bedrooms[slot] < minBedrooms) {
+                    continue;
+                }
+                if (datesFiltered && !availabilityIndex.isFree(ids[slot], availableFrom, availableTo)) {
+                    continue;
+                }
+                total++;
+                top.add(slot);
+                if (top.size() > wanted) {
+                    top.poll();
+                }
+            }
+
+            Integer[] ordered = top.toArray(new Integer[0]);
+            Arrays.sort(ordered, order);
+            List<Long> pageIds = new ArrayList<>(Math.max(0, ordered.length - offset));
+            for (int i = offset; i < ordered.length; i++) {
+                pageIds.add(ids[ordered[i]]);
+            }
+            return Optional.of(new PageImpl<>(pageIds, pageable, total));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Comparator<Integer> comparator(Sort sort) {
+        Sort.Order first = sort.isSorted() ? sort.iterator().next() : Sort.Order.desc("createdAt");
+        Comparator<Integer> byKey = switch (first.getProperty()) {
+            case "createdAt" -> Comparator.comparingLong(slot -> createdAt[slot]);
+            case "rentAmount" -> Comparator.comparingDouble(slot -> rentAmount[slot]);
+            case "bedrooms" -> Comparator.comparingInt(slot -> bedrooms[slot]);
+            case "rating.ratingAverage" -> Comparator.comparingDouble(slot -> averageRating[slot]);
+            case "id" -> Comparator.comparingLong(slot -> ids[slot]);
+            default -> null;
+        };
+        if (byKey == null) {
+            return null;
+        }
+        Comparator<Integer> byId = Comparator.comparingLong(slot -> ids[slot]);
+        return first.isAscending() ? byKey.thenComparing(byId) : byKey.reversed().thenComparing(byId.reversed());
+    }
+
+    private BitSet slotsMatching(String queryToken) {
+        BitSet matches = new BitSet();
+        for (String token : tokensContaining(queryToken)) {
+            matches.or(slotsByToken.get(token));
+        }
+        return matches;
+    }
+
+    /**
+     * Tokens in the vocabulary that contain the query. Queries up to the gram length are looked up
+     * directly; longer ones intersect the token sets of their trigrams and check the survivors.
+     */
+    private Set<String> tokensContaining(String queryToken) {
+        if (queryToken.length() <= GRAM_LENGTH) {
+            return tokensByGram.getOrDefault(queryToken, Collections.emptySet());
+        }
+        Set<String> smallest = null;
+        for (int i = 0; i + GRAM_LENGTH <= queryToken.length(); i++) {
+            Set<String> tokens = tokensByGram.get(queryToken.substring(i, i + GRAM_LENGTH));
+            if (tokens == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || tokens.size() < smallest.size()) {
+                smallest = tokens;
+            }
+        }
+        Set<String> matches = new HashSet<>();
+        for (String token : smallest) {
+            if (token.contains(queryToken)) {
+                matches.add(token);
+            }
+        }
+        return matches;
+    }
+
+    private void write(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            apply(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Entry entry) {
+        Integer existing = slotsById.get(entry.id());
+        if (existing != null) {
+            unlink(existing);
+        }
+        if (entry.deleted()) {
+            if (existing != null) {
+                slotsById.remove(entry.id());
+                freeSlots.push(existing);
+            }
+            return;
+        }
+
+        int slot = existing != null ? existing : allocate(entry.id());
+        createdAt[slot] = entry.createdAt();
+        rentAmount[slot] = entry.rentAmount();
+        bedrooms[slot] = entry.bedrooms();
+        averageRating[slot] = entry.averageRating();
+        tokens[slot] = entry.tokens();
+        for (String token : entry.tokens()) {
+            slotsByToken.computeIfAbsent(token, this::addToVocabulary).set(slot);
+        }
+        if (entry.propertyType() != null) {
+            slotsByType.computeIfAbsent(entry.propertyType(), t -> new BitSet()).set(slot);
+        }
+        if (entry.status() != null) {
+            slotsByStatus.computeIfAbsent(entry.status(), s -> new BitSet()).set(slot);
+        }
+        live.set(slot);
+    }
+
+    private void unlink(int slot) {
+        live.clear(slot);
+        slotsByType.values().forEach(bits -> bits.clear(slot));
+        slotsByStatus.values().forEach(bits -> bits.clear(slot));
+        if (tokens[slot] != null) {
+            for (String token : tokens[slot]) {
+                BitSet bits = slotsByToken.get(token);
+                if (bits != null) {
+                    bits.clear(slot);
+                    if (bits.isEmpty()) {
+                        slotsByToken.remove(token);
+                        removeFromVocabulary(token);
+                    }
+                }
+            }
+            tokens[slot] = null;
+        }
+    }
+
+    private BitSet addToVocabulary(String token) {
+        for (String gram : grams(token)) {
+            tokensByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(token);
+        }
+        return new BitSet();
+    }
+
+    private void removeFromVocabulary(String token) {
+        for (String gram : grams(token)) {
+            Set<String> tokens = tokensByGram.get(gram);
+            if (tokens != null) {
+                tokens.remove(token);
+                if (tokens.isEmpty()) {
+                    tokensByGram.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every substring of the token up to the gram length, so short queries resolve with one lookup.
+     */
+    private static Set<String> grams(String token) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= token.length(); i++) {
+                grams.add(token.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    private int allocate(long id) {
+        Integer free = freeSlots.poll();
+        if (free != null) {
+            ids[free] = id;
+            slotsById.put(id, free);
+            return free;
+        }
+        if (slotCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            rentAmount = Arrays.copyOf(rentAmount, capacity);
+            bedrooms = Arrays.copyOf(bedrooms, capacity);
+            averageRating = Arrays.copyOf(averageRating, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+        }
+        int slot = slotCount++;
+        ids[slot] = id;
+        slotsById.put(id, slot);
+        return slot;
+    }
+
+    private void clear() {
+        slotsById.clear();
+        slotsByToken.clear();
+        tokensByGram.clear();
+        freeSlots.clear();
+        slotsByType.clear();
+        slotsByStatus.clear();
+        live.clear();
+        Arrays.fill(tokens, null);
+        slotCount = 0;
+    }
+
+    /**
+     * Splits text into lower-cased runs of letters and digits, the unit location search matches on.
+     */
+    static Set<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptySet();
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private record Entry(
+            long id,
+            boolean deleted,
+            long createdAt,
+            double rentAmount,
+            int bedrooms,
+            double averageRating,
+            Property.PropertyType propertyType,
+            Property.AvailabilityStatus status,
+            String[] tokens
+    ) {
+        static Entry of(Property property) {
+            Set<String> tokens = new LinkedHashSet<>();
+            tokens.addAll(tokenize(property.getCity()));
+            tokens.addAll(tokenize(property.getState()));
+            tokens.addAll(tokenize(property.getPincode()));
+            return new Entry(
+                    property.getId(),
+                    false,
+                    property.getCreatedAt() != null ? property.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : 0L,
+                    property.getRentAmount() != null ? property.getRentAmount() : 0d,
+                    property.getBedrooms() != null ? property.getBedrooms() : 0,
+                    property.getRating() != null ? property.getRating().getRatingAverage() : 0d,
+                    property.getPropertyType(),
+                    property.getAvailabilityStatus(),
+                    tokens.toArray(new String[0])
+            );
+        }
+
+        static Entry removed(long id) {
+            return new Entry(id, true, 0L, 0d, 0, 0d, null, null, null);
+        }
+    }
+}
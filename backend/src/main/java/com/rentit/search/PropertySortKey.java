@@ -0,0 +1,55 @@
+package com.rentit.search;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Public sort names accepted by the property listing and search endpoints.
+ * Each key maps to an entity path that is backed by an index declared on Property;
+ * anything else is rejected rather than turned into a filesort over the whole table.
+ */
+public enum PropertySortKey {
+
+    CREATED_AT("createdAt", "createdAt"),
+    RENT_AMOUNT("rentAmount", "rentAmount"),
+    BEDROOMS("bedrooms", "bedrooms"),
+    VIEWS("views", "views"),
+    AVERAGE_RATING("averageRating", "rating.ratingAverage");
+
+    private final String publicName;
+    private final String path;
+
+    PropertySortKey(String publicName, String path) {
+        this.publicName = publicName;
+        this.path = path;
+    }
+
+    public String getPublicName() {
+        return publicName;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public static PropertySortKey from(String sortBy) {
+        return Arrays.stream(values())
+                .filter(key -> key.publicName.equals(sortBy))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Unsupported sortBy '" + sortBy + "'. Allowed values: " + allowedNames()));
+    }
+
+    /**
+     * Resolves a whitelisted sort, with id as a tie-breaker so pages are stable.
+     */
+    public static Sort toSort(String sortBy, String order) {
+        Sort.Direction direction = order.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return Sort.by(direction, from(sortBy).path, "id");
+    }
+
+    private static String allowedNames() {
+        return Arrays.stream(values()).map(PropertySortKey::getPublicName).collect(Collectors.joining(", "));
+    }
+}
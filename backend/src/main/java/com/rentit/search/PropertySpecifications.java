@@ -0,0 +1,74 @@
+package com.rentit.search;
+
+import com.rentit.entity.Property;
+import com.rentit.entity.PropertyAvailability;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Database form of the filters PropertySearchIndex applies, used when the index cannot answer a search.
+ * Location is matched the same way on both paths: every word of the query must occur within the city,
+ * state or pincode, so a search returns the same properties whichever path serves it.
+ */
+public final class PropertySpecifications {
+
+    private PropertySpecifications() {
+    }
+
+    public static Specification<Property> search(
+            String location,
+            Double minPrice,
+            Double maxPrice,
+            Property.PropertyType propertyType,
+            Integer minBedrooms,
+            Property.AvailabilityStatus status,
+            LocalDate availableFrom,
+            LocalDate availableTo
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isNull(root.get("deletedAt")));
+            // Tokens are letters and digits only, so they never need escaping inside a LIKE pattern
+            for (String token : PropertySearchIndex.tokenize(location)) {
+                String pattern = "%" + token + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("city")), pattern),
+                        cb.like(cb.lower(root.get("state")), pattern),
+                        cb.like(cb.lower(root.get("pincode")), pattern)
+                ));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("rentAmount"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("rentAmount"), maxPrice));
+            }
+            if (propertyType != null) {
+                predicates.add(cb.equal(root.get("propertyType"), propertyType));
+            }
+            if (minBedrooms != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("bedrooms"), minBedrooms));
+            }
+            if (status != null) {
+                predicates.add(cb.equal(root.get("availabilityStatus"), status));
+            }
+            if (availableFrom != null && availableTo != null) {
+                Subquery<Long> taken = query.subquery(Long.class);
+                Root<PropertyAvailability> availability = taken.from(PropertyAvailability.class);
+                taken.select(availability.get("id")).where(
+                        cb.equal(availability.get("propertyId"), root.get("id")),
+                        cb.lessThan(availability.get("startDate"), availableTo),
+                        cb.greaterThan(availability.get("endDate"), availableFrom)
+                );
+                predicates.add(cb.not(cb.exists(taken)));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.rentit.security;
+
+import com.rentit.entity.User;
+import lombok.Getter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * The principal JwtAuthenticationFilter puts in the security context, carrying the user's id and role so
+ * services can authorize a request without loading the user again. Cached by PrincipalCache, so it may
+ * lag a role change by the cache TTL unless the entry is evicted.
+ */
+@Getter
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    private final Long id;
+    private final User.Role role;
+
+    public AuthenticatedUser(User user) {
+        super(user.getEmail(), user.getPassword(), List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+        this.id = user.getId();
+        this.role = user.getRole();
+    }
+
+    public boolean isAdmin() {
+        return role == User.Role.ADMIN;
+    }
+
+    /**
+     * Whether this user is the given one or an admin.
+     */
+    public boolean isSelfOrAdmin(Long userId) {
+        return id.equals(userId) || isAdmin();
+    }
+}
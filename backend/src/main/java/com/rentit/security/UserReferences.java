@@ -0,0 +1,59 @@
+package com.rentit.security;
+
+import com.rentit.entity.User;
+import com.rentit.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Attaches the authenticated user to new rows by reference, without loading it. The principal comes from
+ * PrincipalCache and may outlive the account by up to its TTL (on other instances, the delete does not
+ * evict it), so an insert referencing a deleted user fails on the foreign key. That failure is turned into
+ * a 404 for the user, and the stale principal is dropped.
+ */
+@Slf4j
+@Component
+public class UserReferences {
+
+    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final TransactionTemplate separateTransaction;
+
+    public UserReferences(UserRepository userRepository, PrincipalCache principalCache,
+                          PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        // The caller's transaction is broken once the insert failed, so the check runs beside it
+        this.separateTransaction = new TransactionTemplate(transactionManager);
+        this.separateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.separateTransaction.setReadOnly(true);
+    }
+
+    public User reference(AuthenticatedUser currentUser) {
+        return userRepository.getReferenceById(currentUser.getId());
+    }
+
+    /**
+     * Runs an insert that references the current user, failing with UsernameNotFoundException if it broke
+     * because the user no longer exists.
+     */
+    public <T> T insert(AuthenticatedUser currentUser, Supplier<T> insert) {
+        try {
+            return insert.get();
+        } catch (DataIntegrityViolationException e) {
+            if (Boolean.TRUE.equals(separateTransaction.execute(status -> userRepository.existsById(currentUser.getId())))) {
+                throw e;
+            }
+            log.info("Rejected a write by deleted user {}", currentUser.getId());
+            principalCache.evict(currentUser.getUsername());
+            throw new UsernameNotFoundException("User not found");
+        }
+    }
+}
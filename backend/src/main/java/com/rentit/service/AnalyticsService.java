@@ -0,0 +1,179 @@
+package com.rentit.service;
+
+import com.rentit.entity.Booking;
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.BookingRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.ReviewRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Platform counters for the admin dashboard, kept in memory.
+ * Service-layer writes report their effect after commit; a periodic reconciliation against the
+ * database corrects any drift (e.g. rows changed outside the application).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsService {
+
+    private final UserRepository userRepository;
+    private final PropertyRepository propertyRepository;
+    private final BookingRepository bookingRepository;
+    private final ReviewRepository reviewRepository;
+
+    private final Map<User.Role, AtomicLong> usersByRole = counters(User.Role.class);
+    private final Map<Property.AvailabilityStatus, AtomicLong> propertiesByStatus = counters(Property.AvailabilityStatus.class);
+    private final Map<Booking.BookingStatus, AtomicLong> bookingsByStatus = counters(Booking.BookingStatus.class);
+    private final AtomicLong reviews = new AtomicLong();
+
+    private volatile boolean reconciled;
+
+    public void userRegistered(User.Role role) {
+        TransactionUtils.afterCommit(() -> usersByRole.get(role).incrementAndGet());
+    }
+
+    public void userDeleted(User.Role role) {
+        TransactionUtils.afterCommit(() -> usersByRole.get(role).decrementAndGet());
+    }
+
+    public void userRoleChanged(User.Role from, User.Role to) {
+        if (from != to) {
+            TransactionUtils.afterCommit(() -> {
+                usersByRole.get(from).decrementAndGet();
+                usersByRole.get(to).incrementAndGet();
+            });
+        }
+    }
+
+    public void propertyCreated(Property.AvailabilityStatus status) {
+        TransactionUtils.afterCommit(() -> propertiesByStatus.get(status).incrementAndGet());
+    }
+
+    public void propertiesCreated(Property.AvailabilityStatus status, long count) {
+        TransactionUtils.afterCommit(() -> propertiesByStatus.get(status).addAndGet(count));
+    }
+
+    public void propertyDeleted(Property.AvailabilityStatus status) {
+        TransactionUtils.afterCommit(() -> propertiesByStatus.get(status).decrementAndGet());
+    }
+
+    public void propertyStatusChanged(Property.AvailabilityStatus from, Property.AvailabilityStatus to) {
+        if (from != to) {
+            TransactionUtils.afterCommit(() -> {
+                propertiesByStatus.get(from).decrementAndGet();
+                propertiesByStatus.get(to).incrementAndGet();
+            });
+        }
+    }
+
+    public void bookingCreated(Booking.BookingStatus status) {
+        TransactionUtils.afterCommit(() -> bookingsByStatus.get(status).incrementAndGet());
+    }
+
+    public void bookingStatusChanged(Booking.BookingStatus from, Booking.BookingStatus to) {
+        if (from != to) {
+            TransactionUtils.afterCommit(() -> {
+                bookingsByStatus.get(from).decrementAndGet();
+                bookingsByStatus.get(to).incrementAndGet();
+            });
+        }
+    }
+
+    public void reviewCreated() {
+        TransactionUtils.afterCommit(reviews::incrementAndGet);
+    }
+
+    public void reviewDeleted() {
+        TransactionUtils.afterCommit(reviews::decrementAndGet);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${analytics.reconcile-interval-ms:300000}", initialDelayString = "${analytics.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        for (User.Role role : User.Role.values()) {
+            usersByRole.get(role).set(userRepository.countByRole(role));
+        }
+        for (Property.AvailabilityStatus status : Property.AvailabilityStatus.values()) {
+            propertiesByStatus.get(status).set(propertyRepository.countByAvailabilityStatusAndDeletedAtIsNull(status));
+        }
+        for (Booking.BookingStatus status : Booking.BookingStatus.values()) {
+            bookingsByStatus.get(status).set(bookingRepository.countByBookingStatus(status));
+        }
+        reviews.set(reviewRepository.count());
+        reconciled = true;
+        log.debug("Analytics counters reconciled");
+    }
+
+    /**
+     * Live property count from the in-memory counters; may lag the database until the next reconciliation.
+     */
+    public long approximatePropertyCount() {
+        if (!reconciled) {
+            reconcile();
+        }
+        return sum(propertiesByStatus);
+    }
+
+    public Map<String, Object> getAnalytics() {
+        if (!reconciled) {
+            reconcile();
+        }
+
+        Map<String, Object> users = new HashMap<>();
+        users.put("total", sum(usersByRole));
+        users.put("owners", usersByRole.get(User.Role.OWNER).get());
+        users.put("tenants", usersByRole.get(User.Role.TENANT).get());
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("total", sum(propertiesByStatus));
+        properties.put("available", propertiesByStatus.get(Property.AvailabilityStatus.AVAILABLE).get());
+        properties.put("rented", propertiesByStatus.get(Property.AvailabilityStatus.RENTED).get());
+
+        Map<String, Object> bookings = new HashMap<>();
+        bookings.put("total", sum(bookingsByStatus));
+        bookings.put("pending", bookingsByStatus.get(Booking.BookingStatus.PENDING).get());
+        bookings.put("approved", bookingsByStatus.get(Booking.BookingStatus.APPROVED).get());
+        bookings.put("rejected", bookingsByStatus.get(Booking.BookingStatus.REJECTED).get());
+        bookings.put("cancelled", bookingsByStatus.get(Booking.BookingStatus.CANCELLED).get());
+
+        Map<String, Object> reviewStats = new HashMap<>();
+        reviewStats.put("total", reviews.get());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("users", users);
+        response.put("properties", properties);
+        response.put("bookings", bookings);
+        response.put("reviews", reviewStats);
+        return response;
+    }
+
+    private static <E extends Enum<E>> Map<E, AtomicLong> counters(Class<E> type) {
+        Map<E, AtomicLong> counters = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            counters.put(value, new AtomicLong());
+        }
+        return counters;
+    }
+
+    private static long sum(Map<?, AtomicLong> counters) {
+        long total = 0;
+        for (AtomicLong counter : counters.values()) {
+            total += counter.get();
+        }
+        return total;
+    }
+}
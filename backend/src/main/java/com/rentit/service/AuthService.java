@@ -1,12 +1,16 @@
 package com.rentit.service;
 
 import com.rentit.dto.*;
+import com.rentit.entity.OutboxEvent;
 import com.rentit.entity.User;
+import com.rentit.event.EventPublisher;
 import com.rentit.exception.ResourceNotFoundException;
+import com.rentit.mapper.DtoMapper;
 import com.rentit.repository.UserRepository;
 import com.rentit.security.JwtUtil;
+import com.rentit.security.PrincipalCache;
+import com.rentit.util.TransactionUtils;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,6 +20,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -27,7 +32,10 @@ public class AuthService {
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final UserDetailsService userDetailsService;
-    private final ModelMapper modelMapper;
+    private final DtoMapper dtoMapper;
+    private final PrincipalCache principalCache;
+    private final AnalyticsService analyticsService;
+    private final EventPublisher eventPublisher;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
@@ -48,6 +56,7 @@ public class AuthService {
                 .build();
 
         User savedUser = userRepository.save(user);
+        analyticsService.userRegistered(savedUser.getRole());
 
         UserDetails userDetails = userDetailsService.loadUserByUsername(savedUser.getEmail());
         String token = jwtUtil.generateToken(userDetails);
@@ -59,7 +68,7 @@ public class AuthService {
         return AuthResponse.builder()
                 .token(token)
                 .refreshToken(refreshToken)
-                .user(modelMapper.map(savedUser, UserDTO.class))
+                .user(dtoMapper.toUserDTO(savedUser))
                 .build();
     }
 
@@ -82,17 +91,17 @@ public class AuthService {
         return AuthResponse.builder()
                 .token(token)
                 .refreshToken(refreshToken)
-                .user(modelMapper.map(user, UserDTO.class))
+                .user(dtoMapper.toUserDTO(user))
                 .build();
     }
 
     @Transactional
     public AuthResponse refreshToken(String refreshToken) {
-        if (!jwtUtil.validateRefreshToken(refreshToken)) {
+        String email = jwtUtil.extractUsernameFromRefreshToken(refreshToken);
+        if (email == null) {
             throw new RuntimeException("Invalid refresh token");
         }
 
-        String email = jwtUtil.extractUsernameFromRefreshToken(refreshToken);
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
@@ -110,7 +119,7 @@ public class AuthService {
         return AuthResponse.builder()
                 .token(newToken)
                 .refreshToken(newRefreshToken)
-                .user(modelMapper.map(user, UserDTO.class))
+                .user(dtoMapper.toUserDTO(user))
                 .build();
     }
 
@@ -120,26 +129,26 @@ public class AuthService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         user.setRefreshToken(null);
         userRepository.save(user);
+        TransactionUtils.afterCommit(() -> principalCache.evict(email));
     }
 
     public UserDTO getProfile(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        return modelMapper.map(user, UserDTO.class);
+        return dtoMapper.toUserDTO(user);
     }
 
     @Transactional
     public MessageResponse requestPasswordReset(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        String resetToken = UUID.randomUUID().toString();
-        user.setResetPasswordToken(resetToken);
-        user.setResetPasswordExpire(LocalDateTime.now().plusHours(1));
-        userRepository.save(user);
-
-        // In production, send email with reset link
-        return new MessageResponse("Password reset token generated. Token: " + resetToken);
+        // Same answer whether or not the account exists, so the endpoint cannot be used to probe for emails
+        userRepository.findByEmail(email).ifPresent(user -> {
+            user.setResetPasswordToken(UUID.randomUUID().toString());
+            user.setResetPasswordExpire(LocalDateTime.now().plusHours(1));
+            userRepository.save(user);
+            eventPublisher.publish(OutboxEvent.Type.PASSWORD_RESET_REQUESTED, "USER", user.getId(), Map.of());
+        });
+
+        return new MessageResponse("If an account exists for this email, a password reset link has been sent to it");
     }
 
     @Transactional
@@ -155,6 +164,7 @@ public class AuthService {
         user.setResetPasswordToken(null);
         user.setResetPasswordExpire(null);
         userRepository.save(user);
+        TransactionUtils.afterCommit(() -> principalCache.evict(user.getEmail()));
 
         return new MessageResponse("Password reset successful");
     }
@@ -0,0 +1,110 @@
+package com.rentit.service;
+
+import com.rentit.entity.Booking;
+import com.rentit.entity.PropertyAvailability;
+import com.rentit.event.EventPublisher;
+import com.rentit.repository.BookingRepository;
+import com.rentit.repository.PropertyAvailabilityRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.search.PropertyAvailabilityIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps property_availability in step with approved bookings. Callers changing a property's approved
+ * bookings must hold the property row lock, so overlap checks and range rewrites for one property never interleave.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvailabilityService {
+
+    private static final int BACKFILL_CHUNK_SIZE = 100;
+
+    private final BookingRepository bookingRepository;
+    private final PropertyAvailabilityRepository availabilityRepository;
+    private final PropertyAvailabilityIndex availabilityIndex;
+    private final PropertyRepository propertyRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final EventPublisher eventPublisher;
+
+    public void assertFree(Long propertyId, LocalDate checkIn, LocalDate checkOut) {
+        if (availabilityRepository.existsByPropertyIdAndStartDateLessThanAndEndDateGreaterThan(
+                propertyId, endOf(checkOut), checkIn)) {
+            throw new RuntimeException("Property is already booked for these dates");
+        }
+    }
+
+    /**
+     * Rebuilds the property's taken ranges from its approved bookings that have not ended yet and returns them.
+     */
+    @Transactional
+    public List<PropertyAvailability> refresh(Long propertyId) {
+        List<Booking> approved = bookingRepository.findByPropertyIdAndStatusEndingAfter(
+                propertyId, Booking.BookingStatus.APPROVED, LocalDate.now());
+
+        List<PropertyAvailability> ranges = new ArrayList<>();
+        PropertyAvailability current = null;
+        for (Booking booking : approved) {
+            LocalDate end = endOf(booking.getCheckOutDate());
+            if (current != null && !booking.getCheckInDate().isAfter(current.getEndDate())) {
+                if (end.isAfter(current.getEndDate())) {
+                    current.setEndDate(end);
+                }
+                continue;
+            }
+            current = PropertyAvailability.builder()
+                    .propertyId(propertyId)
+                    .startDate(booking.getCheckInDate())
+                    .endDate(end)
+                    .build();
+            ranges.add(current);
+        }
+
+        availabilityRepository.deleteByPropertyId(propertyId);
+        availabilityRepository.saveAll(ranges);
+        availabilityIndex.replace(propertyId, ranges);
+        return ranges;
+    }
+
+    /**
+     * Rebuilds the ranges of every property with approved bookings, in id-ordered chunks that each commit
+     * on their own, so row locks and the persistence context stay bounded. Each property is locked before
+     * its ranges are rewritten, like any other change to its approved bookings.
+     */
+    public int backfill() {
+        List<Long> propertyIds = bookingRepository.findPropertyIdsByBookingStatus(Booking.BookingStatus.APPROVED)
+                .stream()
+                .sorted()
+                .toList();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < propertyIds.size(); from += BACKFILL_CHUNK_SIZE) {
+            List<Long> chunk = propertyIds.subList(from, Math.min(from + BACKFILL_CHUNK_SIZE, propertyIds.size()));
+            transaction.executeWithoutResult(status -> {
+                List<Long> refreshed = new ArrayList<>(chunk.size());
+                for (Long propertyId : chunk) {
+                    if (propertyRepository.findWithLockById(propertyId).isPresent()) {
+                        refresh(propertyId);
+                        refreshed.add(propertyId);
+                    }
+                }
+                // Other instances reload the ranges from these events
+                eventPublisher.propertiesChanged(refreshed);
+            });
+        }
+        log.info("Rebuilt availability for {} properties", propertyIds.size());
+        return propertyIds.size();
+    }
+
+    private static LocalDate endOf(LocalDate checkOut) {
+        return checkOut != null ? checkOut : PropertyAvailability.OPEN_END;
+    }
+}
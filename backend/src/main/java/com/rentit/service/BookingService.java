@@ -2,22 +2,32 @@ package com.rentit.service;
 
 import com.rentit.dto.BookingDTO;
 import com.rentit.dto.BookingRequest;
+import com.rentit.dto.BookingSummaryDTO;
+import com.rentit.dto.CursorPage;
 import com.rentit.dto.MessageResponse;
 import com.rentit.entity.Booking;
+import com.rentit.entity.OutboxEvent;
 import com.rentit.entity.Property;
 import com.rentit.entity.User;
+import com.rentit.event.EventPublisher;
 import com.rentit.exception.ResourceNotFoundException;
+import com.rentit.mapper.DtoMapper;
 import com.rentit.repository.BookingRepository;
 import com.rentit.repository.PropertyRepository;
-import com.rentit.repository.UserRepository;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.security.UserReferences;
+import com.rentit.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -25,21 +35,29 @@ public class BookingService {
 
     private final BookingRepository bookingRepository;
     private final PropertyRepository propertyRepository;
-    private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
+    private final UserReferences userReferences;
+    private final DtoMapper dtoMapper;
+    private final AnalyticsService analyticsService;
+    private final ConflictRetry conflictRetry;
+    private final AvailabilityService availabilityService;
+    private final EventPublisher eventPublisher;
 
     @Transactional
-    public BookingDTO createBooking(BookingRequest request, String userEmail) {
-        User tenant = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public BookingDTO createBooking(BookingRequest request, AuthenticatedUser currentUser) {
+        User tenant = userReferences.reference(currentUser);
 
         Property property = propertyRepository.findByIdAndDeletedAtIsNull(request.getPropertyId())
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
 
-        if (property.getAvailabilityStatus() != Property.AvailabilityStatus.AVAILABLE) {
+        // A rented property can still be booked for dates after its current stays
+        if (property.getAvailabilityStatus() == Property.AvailabilityStatus.DRAFT) {
             throw new RuntimeException("Property is not available for booking");
         }
 
+        if (request.getCheckOutDate() != null && !request.getCheckOutDate().isAfter(request.getCheckInDate())) {
+            throw new RuntimeException("Check-out date must be after check-in date");
+        }
+
         if (property.getOwner().getId().equals(tenant.getId())) {
             throw new RuntimeException("You cannot book your own property");
         }
@@ -53,44 +71,46 @@ public class BookingService {
             throw new RuntimeException("You already have an active booking for this property");
         });
 
+        availabilityService.assertFree(property.getId(), request.getCheckInDate(), request.getCheckOutDate());
+
         Booking booking = Booking.builder()
                 .property(property)
                 .tenant(tenant)
                 .owner(property.getOwner())
                 .checkInDate(request.getCheckInDate())
+                .checkOutDate(request.getCheckOutDate())
                 .notes(request.getNotes())
                 .bookingStatus(Booking.BookingStatus.PENDING)
                 .build();
 
-        Booking savedBooking = bookingRepository.save(booking);
-        return mapToDTO(savedBooking);
+        Booking savedBooking = userReferences.insert(currentUser, () -> bookingRepository.save(booking));
+        analyticsService.bookingCreated(savedBooking.getBookingStatus());
+        publish(OutboxEvent.Type.BOOKING_CREATED, savedBooking);
+        return dtoMapper.toBookingDTO(savedBooking);
     }
 
-    public BookingDTO getBookingById(Long id, String userEmail) {
-        Booking booking = bookingRepository.findById(id)
+    public BookingDTO getBookingById(Long id, AuthenticatedUser currentUser) {
+        Booking booking = bookingRepository.findWithPartiesById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!booking.getTenant().getId().equals(user.getId()) &&
-            !booking.getOwner().getId().equals(user.getId()) &&
-            user.getRole() != User.Role.ADMIN) {
+        if (!booking.getTenant().getId().equals(currentUser.getId()) &&
+            !booking.getOwner().getId().equals(currentUser.getId()) &&
+            !currentUser.isAdmin()) {
             throw new RuntimeException("Not authorized to view this booking");
         }
 
-        return mapToDTO(booking);
+        return dtoMapper.toBookingDTO(booking);
     }
 
-    @Transactional
-    public BookingDTO approveBooking(Long id, String userEmail) {
-        Booking booking = bookingRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
+    public BookingDTO approveBooking(Long id, AuthenticatedUser currentUser) {
+        return conflictRetry.execute(() -> approve(id, currentUser));
+    }
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    private BookingDTO approve(Long id, AuthenticatedUser currentUser) {
+        Booking booking = bookingRepository.findWithPartiesById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
 
-        if (!booking.getOwner().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(booking.getOwner().getId())) {
             throw new RuntimeException("Not authorized to approve this booking");
         }
 
@@ -98,26 +118,35 @@ public class BookingService {
             throw new RuntimeException("Booking is not in pending status");
         }
 
+        // Approvals for one property queue on its row lock, so each sees the dates the previous one took
+        Property property = propertyRepository.findWithLockById(booking.getProperty().getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
+        availabilityService.assertFree(property.getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+
         booking.setBookingStatus(Booking.BookingStatus.APPROVED);
         Booking savedBooking = bookingRepository.save(booking);
+        analyticsService.bookingStatusChanged(Booking.BookingStatus.PENDING, Booking.BookingStatus.APPROVED);
+        availabilityService.refresh(property.getId());
 
         // Update property status
-        Property property = booking.getProperty();
+        analyticsService.propertyStatusChanged(property.getAvailabilityStatus(), Property.AvailabilityStatus.RENTED);
         property.setAvailabilityStatus(Property.AvailabilityStatus.RENTED);
         propertyRepository.save(property);
+        eventPublisher.propertyChanged(property.getId());
+        publish(OutboxEvent.Type.BOOKING_APPROVED, savedBooking);
 
-        return mapToDTO(savedBooking);
+        return dtoMapper.toBookingDTO(savedBooking);
     }
 
-    @Transactional
-    public BookingDTO rejectBooking(Long id, String userEmail) {
-        Booking booking = bookingRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
+    public BookingDTO rejectBooking(Long id, AuthenticatedUser currentUser) {
+        return conflictRetry.execute(() -> reject(id, currentUser));
+    }
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    private BookingDTO reject(Long id, AuthenticatedUser currentUser) {
+        Booking booking = bookingRepository.findWithPartiesById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
 
-        if (!booking.getOwner().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(booking.getOwner().getId())) {
             throw new RuntimeException("Not authorized to reject this booking");
         }
 
@@ -126,18 +155,21 @@ public class BookingService {
         }
 
         booking.setBookingStatus(Booking.BookingStatus.REJECTED);
-        return mapToDTO(bookingRepository.save(booking));
+        analyticsService.bookingStatusChanged(Booking.BookingStatus.PENDING, Booking.BookingStatus.REJECTED);
+        Booking savedBooking = bookingRepository.save(booking);
+        publish(OutboxEvent.Type.BOOKING_REJECTED, savedBooking);
+        return dtoMapper.toBookingDTO(savedBooking);
     }
 
-    @Transactional
-    public BookingDTO cancelBooking(Long id, String userEmail) {
-        Booking booking = bookingRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
+    public BookingDTO cancelBooking(Long id, AuthenticatedUser currentUser) {
+        return conflictRetry.execute(() -> cancel(id, currentUser));
+    }
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    private BookingDTO cancel(Long id, AuthenticatedUser currentUser) {
+        Booking booking = bookingRepository.findWithPartiesById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
 
-        if (!booking.getTenant().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(booking.getTenant().getId())) {
             throw new RuntimeException("Not authorized to cancel this booking");
         }
 
@@ -145,58 +177,67 @@ public class BookingService {
             throw new RuntimeException("Booking is already cancelled");
         }
 
-        // If booking was approved, revert property status
-        if (booking.getBookingStatus() == Booking.BookingStatus.APPROVED) {
-            Property property = booking.getProperty();
-            property.setAvailabilityStatus(Property.AvailabilityStatus.AVAILABLE);
-            propertyRepository.save(property);
+        Booking.BookingStatus previousStatus = booking.getBookingStatus();
+        analyticsService.bookingStatusChanged(previousStatus, Booking.BookingStatus.CANCELLED);
+        booking.setBookingStatus(Booking.BookingStatus.CANCELLED);
+        Booking savedBooking = bookingRepository.save(booking);
+
+        // If booking was approved, free its dates and revert property status once no approved stay remains
+        if (previousStatus == Booking.BookingStatus.APPROVED) {
+            Property property = propertyRepository.findWithLockById(booking.getProperty().getId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
+            if (availabilityService.refresh(property.getId()).isEmpty()) {
+                analyticsService.propertyStatusChanged(property.getAvailabilityStatus(), Property.AvailabilityStatus.AVAILABLE);
+                property.setAvailabilityStatus(Property.AvailabilityStatus.AVAILABLE);
+                propertyRepository.save(property);
+            }
+            // Other instances pick up the freed dates from the event
+            eventPublisher.propertyChanged(property.getId());
         }
+        publish(OutboxEvent.Type.BOOKING_CANCELLED, savedBooking);
 
-        booking.setBookingStatus(Booking.BookingStatus.CANCELLED);
-        return mapToDTO(bookingRepository.save(booking));
+        return dtoMapper.toBookingDTO(savedBooking);
     }
 
-    public Page<BookingDTO> getTenantBookings(Long tenantId, Pageable pageable, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!user.getId().equals(tenantId) && user.getRole() != User.Role.ADMIN) {
+    public Page<BookingSummaryDTO> getTenantBookings(Long tenantId, Pageable pageable, AuthenticatedUser currentUser) {
+        if (!currentUser.isSelfOrAdmin(tenantId)) {
             throw new RuntimeException("Not authorized to view these bookings");
         }
 
         Page<Booking> bookings = bookingRepository.findByTenantId(tenantId, pageable);
-        return bookings.map(this::mapToDTO);
+        return bookings.map(dtoMapper::toBookingSummaryDTO);
     }
 
-    public Page<BookingDTO> getOwnerBookings(Long ownerId, Pageable pageable, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!user.getId().equals(ownerId) && user.getRole() != User.Role.ADMIN) {
+    public Page<BookingSummaryDTO> getOwnerBookings(Long ownerId, Pageable pageable, AuthenticatedUser currentUser) {
+        if (!currentUser.isSelfOrAdmin(ownerId)) {
             throw new RuntimeException("Not authorized to view these bookings");
         }
 
         Page<Booking> bookings = bookingRepository.findByOwnerId(ownerId, pageable);
-        return bookings.map(this::mapToDTO);
+        return bookings.map(dtoMapper::toBookingSummaryDTO);
+    }
+
+    public CursorPage<BookingSummaryDTO> getOwnerBookingsAfter(Long ownerId, String cursor, int limit, AuthenticatedUser currentUser) {
+        if (!currentUser.isSelfOrAdmin(ownerId)) {
+            throw new RuntimeException("Not authorized to view these bookings");
+        }
+
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, limit);
+        Slice<Booking> bookings = position == null
+                ? bookingRepository.findByOwnerIdOrderByCreatedAtDescIdDesc(ownerId, pageable)
+                : bookingRepository.findByOwnerIdBefore(ownerId, position.createdAt(), position.id(), pageable);
+        return CursorPage.of(bookings, dtoMapper::toBookingSummaryDTO, b -> new KeysetCursor(b.getCreatedAt(), b.getId()));
     }
 
-    private BookingDTO mapToDTO(Booking booking) {
-        BookingDTO dto = new BookingDTO();
-        dto.setId(booking.getId());
-        dto.setBookingStatus(booking.getBookingStatus());
-        dto.setCheckInDate(booking.getCheckInDate());
-        dto.setBookingDate(booking.getBookingDate());
-        dto.setNotes(booking.getNotes());
-        dto.setCreatedAt(booking.getCreatedAt());
-        dto.setUpdatedAt(booking.getUpdatedAt());
-        
-        // Map simplified property info
-        Property property = booking.getProperty();
-        dto.setProperty(modelMapper.map(property, com.rentit.dto.PropertyDTO.class));
-        
-        dto.setTenant(modelMapper.map(booking.getTenant(), com.rentit.dto.UserDTO.class));
-        dto.setOwner(modelMapper.map(booking.getOwner(), com.rentit.dto.UserDTO.class));
-        
-        return dto;
+    private void publish(OutboxEvent.Type type, Booking booking) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("bookingId", booking.getId());
+        payload.put("propertyId", booking.getProperty().getId());
+        payload.put("tenantId", booking.getTenant().getId());
+        payload.put("ownerId", booking.getOwner().getId());
+        payload.put("checkInDate", booking.getCheckInDate());
+        payload.put("checkOutDate", booking.getCheckOutDate());
+        eventPublisher.publish(type, "BOOKING", booking.getId(), payload);
     }
 }
@@ -0,0 +1,79 @@
+package com.rentit.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs work in its own transaction and re-runs it from scratch when it loses a race on a versioned row
+ * or a lock. Each attempt re-reads the data, so business checks see the winner's changes. Attempts back
+ * off exponentially with jitter so colliding requests spread out instead of colliding again.
+ * Callers must not already be in a transaction: the work would join it, and after the first conflict
+ * marked it rollback-only every retry would fail the same way. Starting a new transaction instead could
+ * wait on locks the suspended one already holds, so this fails fast.
+ */
+@Slf4j
+@Component
+public class ConflictRetry {
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${concurrency.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${concurrency.retry.backoff-ms:5}")
+    private long backoffMs;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public ConflictRetry(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("ConflictRetry must be called outside of a transaction");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException | PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                log.debug("Concurrent update conflict, retrying (attempt {}): {}", attempt, e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = backoffMs << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying", e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.rentit.service;
+
+import com.rentit.storage.ImageStore;
+import com.rentit.storage.LocalImageStore;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies images from the local upload directory into the configured shared store, so a node can be switched
+ * from local disk to object storage without losing existing images. Objects already present are skipped,
+ * which makes the migration safe to re-run.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageMigrationService {
+
+    private final ImageStore imageStore;
+    private final ImageService imageService;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong copied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void start() {
+        if (imageStore instanceof LocalImageStore) {
+            throw new RuntimeException("Images are already stored locally; configure a shared image store first");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Image migration is already running");
+        }
+        scanned.set(0);
+        copied.set(0);
+        skipped.set(0);
+        failed.set(0);
+        executor.execute(this::migrate);
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("scanned", scanned.get());
+        status.put("copied", copied.get());
+        status.put("skipped", skipped.get());
+        status.put("failed", failed.get());
+        return status;
+    }
+
+    private void migrate() {
+        long started = System.nanoTime();
+        LocalImageStore source = new LocalImageStore(uploadDir);
+        try {
+            source.forEach((key, info) -> copy(source, key));
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Image migration aborted", e);
+        } finally {
+            running.set(false);
+            log.info("Image migration finished in {} ms: {}", (System.nanoTime() - started) / 1_000_000, status());
+        }
+    }
+
+    private void copy(LocalImageStore source, String key) {
+        scanned.incrementAndGet();
+        try {
+            if (imageStore.exists(key)) {
+                skipped.incrementAndGet();
+                return;
+            }
+            Path temp = imageService.stagingFile();
+            try {
+                try (InputStream in = source.open(key)) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                imageStore.put(key, temp, ImageService.contentType(key));
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            copied.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Failed to migrate image {}: {}", key, e.getMessage());
+        }
+    }
+}
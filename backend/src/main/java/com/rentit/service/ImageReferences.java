@@ -0,0 +1,93 @@
+package com.rentit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers which stored images are still used by a listing. Images are matched on their content hash,
+ * so an original and its variants count as one image. Listings soft-deleted longer than the retention
+ * period no longer hold on to their images.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImageReferences {
+
+    private static final String URLS_SQL =
+            "SELECT pi.url FROM property_images pi JOIN properties p ON p.id = pi.property_id " +
+            "WHERE (p.deleted_at IS NULL OR p.deleted_at > ?)";
+    private static final String MATCHING_URLS_SQL = URLS_SQL + " AND pi.url IN (%s)";
+
+    private static final List<String> URL_PREFIXES = List.of("/uploads/", "/api/images/");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${images.gc.deleted-property-retention-days:30}")
+    private long deletedPropertyRetentionDays;
+
+    /**
+     * Streams every image URL from the database and returns the referenced content hashes.
+     */
+    public Set<String> referencedBaseNames() {
+        Set<String> referenced = ConcurrentHashMap.newKeySet();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(URLS_SQL);
+            statement.setFetchSize(500);
+            statement.setTimestamp(1, Timestamp.valueOf(retentionCutoff()));
+            return statement;
+        }, row -> {
+            referenced.add(baseNameOf(row.getString(1)));
+        });
+        return referenced;
+    }
+
+    /**
+     * Returns the content hashes of the given keys that are referenced right now. Only exact URLs are
+     * matched, so the lookup stays on the url index.
+     */
+    public Set<String> referencedAmong(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Set.of();
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(retentionCutoff()));
+        for (String key : keys) {
+            for (String prefix : URL_PREFIXES) {
+                args.add(prefix + key);
+            }
+        }
+        String placeholders = String.join(", ", Collections.nCopies(args.size() - 1, "?"));
+
+        Set<String> referenced = new HashSet<>();
+        jdbcTemplate.query(String.format(MATCHING_URLS_SQL, placeholders), row -> {
+            referenced.add(baseNameOf(row.getString(1)));
+        }, args.toArray());
+        return referenced;
+    }
+
+    public boolean isReferenced(String key) {
+        return !referencedAmong(List.of(key)).isEmpty();
+    }
+
+    private LocalDateTime retentionCutoff() {
+        return LocalDateTime.now().minusDays(deletedPropertyRetentionDays);
+    }
+
+    private static String baseNameOf(String url) {
+        int query = url.indexOf('?');
+        String path = query >= 0 ? url.substring(0, query) : url;
+        return ImageService.baseName(path.substring(path.lastIndexOf('/') + 1));
+    }
+}
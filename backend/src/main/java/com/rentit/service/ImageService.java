@@ -0,0 +1,566 @@
+package com.rentit.service;
+
+import com.rentit.entity.UploadedImage;
+import com.rentit.exception.TooManyRequestsException;
+import com.rentit.repository.UploadedImageRepository;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.storage.ImageStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores uploaded images in the ImageStore content-addressed by their SHA-256, so identical uploads
+ * share one object, and renders resized JPEG variants on a bounded background pool. Until a variant is ready,
+ * requests for it fall back to the original. Image dimensions are read from the header and checked against a
+ * pixel budget before anything is decoded, and decoding subsamples down to the largest variant, so a small
+ * file claiming a huge canvas cannot exhaust the heap. Each upload is recorded against the user who made it,
+ * and only they or an admin may delete the image.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageService {
+
+    public enum Variant {
+        THUMB(200), MEDIUM(800), FULL(2048);
+
+        private final int maxDimension;
+
+        Variant(int maxDimension) {
+            this.maxDimension = maxDimension;
+        }
+
+        public static Variant from(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown image variant: " + name);
+            }
+        }
+    }
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final String STAGING_DIR = ".staging";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "bmp", "image/bmp",
+            "webp", "image/webp",
+            "tif", "image/tiff",
+            "tiff", "image/tiff"
+    );
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${images.processing.threads:0}")
+    private int threads;
+
+    @Value("${images.processing.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${images.upload.threads:4}")
+    private int uploadThreads;
+
+    @Value("${images.upload.max-bytes:5242880}")
+    private long maxUploadBytes;
+
+    @Value("${images.upload.max-files:10}")
+    private int maxFiles;
+
+    @Value("${images.upload.max-pixels:50000000}")
+    private long maxPixels;
+
+    @Value("${images.upload.max-concurrent-per-user:4}")
+    private int maxConcurrentUploads;
+
+    private final ImageStore imageStore;
+    private final ImageReferences imageReferences;
+    private final UploadedImageRepository uploadedImageRepository;
+
+    private final Map<String, Integer> activeUploads = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor uploadExecutor;
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // A full queue makes the caller do the work itself, which throttles uploads instead of queueing without bound
+        executor = boundedPool("image-processing-", poolSize, queueCapacity);
+        uploadExecutor = boundedPool("image-upload-", uploadThreads, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        uploadExecutor.shutdown();
+    }
+
+    private static ThreadPoolExecutor boundedPool(String namePrefix, int size, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Stores the {@code images} parts of a multipart/form-data request as they arrive. Parts are read straight
+     * off the request stream, one at a time, and hashed while they are staged to disk; nothing is buffered by
+     * the servlet container. Each staged part is then handed to the upload pool, so the request can go on
+     * reading the next part while the previous one is written to the image store.
+     */
+    public List<Map<String, String>> storeMultipart(HttpServletRequest request, AuthenticatedUser uploader) throws IOException {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new RuntimeException("Expected a multipart/form-data request");
+        }
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        upload.setFileSizeMax(maxUploadBytes);
+        // Each part may be up to the per-file cap, plus a little for its headers and boundary
+        upload.setSizeMax((maxUploadBytes + BLOCK_SIZE) * maxFiles);
+
+        acquireUploadSlot(uploader.getUsername());
+        List<CompletableFuture<Map<String, String>>> uploads = new ArrayList<>();
+        try {
+            FileItemInputIterator parts = upload.getItemIterator(request);
+            boolean sawImages = false;
+            while (parts.hasNext()) {
+                FileItemInput part = parts.next();
+                if (part.isFormField() || !"images".equals(part.getFieldName())) {
+                    continue;
+                }
+                sawImages = true;
+                try (InputStream input = part.getInputStream()) {
+                    Staged staged = stage(input, part.getName(), true);
+                    if (staged == null) {
+                        continue;
+                    }
+                    if (uploads.size() == maxFiles) {
+                        Files.deleteIfExists(staged.file());
+                        throw new RuntimeException("At most " + maxFiles + " images can be uploaded at once");
+                    }
+                    uploads.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return publish(staged, uploader.getId());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, uploadExecutor));
+                }
+            }
+            if (!sawImages) {
+                throw new RuntimeException("Required part 'images' is not present");
+            }
+            return uploads.stream().map(ImageService::await).toList();
+        } catch (FileUploadSizeException e) {
+            throw new RuntimeException("Upload exceeds the maximum size of " + e.getPermitted() + " bytes");
+        } catch (FileUploadException e) {
+            throw new RuntimeException("Malformed multipart request: " + e.getMessage());
+        } finally {
+            // Staged files belong to their upload tasks; let them finish before the slot is given back
+            uploads.forEach(future -> future.handle((result, error) -> null).join());
+            releaseUploadSlot(uploader.getUsername());
+        }
+    }
+
+    /**
+     * Stores a single image streamed straight from the request body.
+     */
+    public Map<String, String> storeStream(InputStream input, String originalFilename, AuthenticatedUser uploader) throws IOException {
+        acquireUploadSlot(uploader.getUsername());
+        try {
+            return publish(stage(input, originalFilename, false), uploader.getId());
+        } finally {
+            releaseUploadSlot(uploader.getUsername());
+        }
+    }
+
+    /**
+     * An upload copied to a staging file, named by its content hash.
+     */
+    private record Staged(Path file, String filename, long size) {
+    }
+
+    /**
+     * Copies the stream to a staging file in fixed-size blocks while hashing it. The format is checked from
+     * the first block, before anything is written, and the dimensions from the header once the file is complete.
+     * Returns null for an empty stream when {@code skipEmpty} is set, as browsers send empty file inputs.
+     */
+    private Staged stage(InputStream source, String originalFilename, boolean skipEmpty) throws IOException {
+        MessageDigest digest = sha256();
+        BufferedInputStream input = new BufferedInputStream(source, BLOCK_SIZE);
+        input.mark(BLOCK_SIZE);
+        byte[] head = input.readNBytes(BLOCK_SIZE);
+        input.reset();
+        if (head.length == 0 && skipEmpty) {
+            return null;
+        }
+        String format = detectFormat(head);
+        if (format == null) {
+            throw new RuntimeException("Unsupported image format: " + originalFilename);
+        }
+
+        Path temp = stagingFile();
+        long size = 0;
+        boolean staged = false;
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BLOCK_SIZE];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxUploadBytes) {
+                        throw new RuntimeException("Image exceeds the maximum size of " + maxUploadBytes + " bytes: " + originalFilename);
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            checkDimensions(temp, originalFilename);
+
+            staged = true;
+            return new Staged(temp, HexFormat.of().formatHex(digest.digest()) + "." + format, size);
+        } finally {
+            if (!staged) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Moves a staged upload into the image store under its hash, unless identical bytes are already there,
+     * and records the uploader.
+     */
+    private Map<String, String> publish(Staged staged, Long uploaderId) throws IOException {
+        String filename = staged.filename();
+        try {
+            if (!imageStore.exists(filename)) {
+                imageStore.put(filename, staged.file(), contentType(filename));
+                executor.execute(() -> renderVariants(filename));
+            } else {
+                imageStore.touch(filename);
+            }
+        } finally {
+            Files.deleteIfExists(staged.file());
+        }
+        recordUpload(baseName(filename), uploaderId);
+
+        Map<String, String> imageInfo = new HashMap<>();
+        imageInfo.put("filename", filename);
+        imageInfo.put("url", imageStore.publicUrl(filename));
+        imageInfo.put("size", String.valueOf(staged.size()));
+        imageInfo.put("mimetype", contentType(filename));
+        return imageInfo;
+    }
+
+    /**
+     * Rejects an image whose header declares more pixels than the budget. Only the header is read.
+     */
+    private void checkDimensions(Path file, String originalFilename) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(input);
+            if (reader == null) {
+                throw new RuntimeException("Unsupported image format: " + originalFilename);
+            }
+            try {
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new RuntimeException("Image exceeds the maximum of " + maxPixels + " pixels: " + originalFilename);
+                }
+            } catch (IOException | IndexOutOfBoundsException e) {
+                throw new RuntimeException("Unreadable image: " + originalFilename);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void recordUpload(String contentHash, Long uploaderId) {
+        if (uploadedImageRepository.existsByContentHashAndUploaderId(contentHash, uploaderId)) {
+            return;
+        }
+        try {
+            uploadedImageRepository.save(UploadedImage.builder().contentHash(contentHash).uploaderId(uploaderId).build());
+        } catch (DataIntegrityViolationException e) {
+            // The same user uploaded the same bytes concurrently; one row is enough
+        }
+    }
+
+    private void acquireUploadSlot(String userEmail) {
+        if (activeUploads.merge(userEmail, 1, Integer::sum) > maxConcurrentUploads) {
+            releaseUploadSlot(userEmail);
+            throw new TooManyRequestsException("Too many concurrent uploads, try again shortly");
+        }
+    }
+
+    private void releaseUploadSlot(String userEmail) {
+        activeUploads.computeIfPresent(userEmail, (user, active) -> active > 1 ? active - 1 : null);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A stored object ready to serve. Keys are never reused for different bytes, so the key doubles as a strong
+     * ETag and the object can be cached indefinitely; only a fallback served in place of a pending variant cannot.
+     */
+    public record StoredImage(String key, String contentType, String etag, boolean immutable) {
+    }
+
+    /**
+     * Returns the stored object for the variant, or the original when no variant was asked for or it is not ready yet.
+     */
+    public StoredImage locate(String filename, Variant variant) throws IOException {
+        if (variant != null) {
+            String renderedName = variantName(filename, variant);
+            if (imageStore.exists(renderedName)) {
+                return new StoredImage(renderedName, "image/jpeg", "\"" + renderedName + "\"", true);
+            }
+        }
+        return new StoredImage(filename, contentType(filename), "\"" + filename + "\"", variant == null);
+    }
+
+    /**
+     * Deletes an image that no listing uses, e.g. one removed from a form before it was saved. Only the
+     * uploader or an admin may delete it. When other users uploaded the same bytes, only the caller's claim
+     * is dropped and the stored object stays for them. Images in use are removed by editing the listing
+     * and left to the orphan collector.
+     */
+    public void delete(String filename, AuthenticatedUser currentUser) throws IOException {
+        String contentHash = baseName(filename);
+        if (!currentUser.isAdmin() && !uploadedImageRepository.existsByContentHashAndUploaderId(contentHash, currentUser.getId())) {
+            throw new RuntimeException("Not authorized to delete this image");
+        }
+        if (imageReferences.isReferenced(filename)) {
+            throw new RuntimeException("Image is used by a property and cannot be deleted");
+        }
+        if (!currentUser.isAdmin()) {
+            uploadedImageRepository.deleteByContentHashAndUploaderId(contentHash, currentUser.getId());
+            if (uploadedImageRepository.existsByContentHash(contentHash)) {
+                return;
+            }
+        }
+        for (Variant variant : Variant.values()) {
+            imageStore.delete(variantName(filename, variant));
+        }
+        imageStore.delete(filename);
+        uploadedImageRepository.deleteByContentHashIn(List.of(contentHash));
+    }
+
+    private void renderVariants(String filename) {
+        long start = System.nanoTime();
+        try {
+            BufferedImage source = decode(filename);
+            if (source == null) {
+                log.warn("Could not decode image {}", filename);
+                return;
+            }
+            // Largest first, each variant scaled down from the previous one so the upload is decoded once
+            BufferedImage current = toRgb(source);
+            Variant[] variants = Variant.values();
+            for (int i = variants.length - 1; i >= 0; i--) {
+                current = scaleToFit(current, variants[i].maxDimension);
+                Path temp = stagingFile();
+                try {
+                    ImageIO.write(current, "jpg", temp.toFile());
+                    imageStore.put(variantName(filename, variants[i]), temp, "image/jpeg");
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            log.debug("Rendered variants for {} in {} ms", filename, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Failed to render variants for {}: {}", filename, e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes the stored image, skipping rows and columns so the result is no smaller than the largest variant.
+     * Returns null when it cannot be decoded or its header declares more pixels than the budget.
+     */
+    private BufferedImage decode(String filename) throws IOException {
+        try (InputStream in = imageStore.open(filename);
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            ImageReader reader = reader(input);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Not rendering variants for {}: {}x{} exceeds the pixel budget", filename, width, height);
+                    return null;
+                }
+                int step = Math.max(1, Math.max(width, height) / Variant.FULL.maxDimension);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * The first reader that recognises the stream, positioned on it, or null if none does.
+     */
+    private static ImageReader reader(ImageInputStream input) {
+        if (input == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        graphics.dispose();
+        return rgb;
+    }
+
+    private static BufferedImage scaleToFit(BufferedImage image, int maxDimension) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        if (longest <= maxDimension) {
+            return image;
+        }
+        double scale = (double) maxDimension / longest;
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private static String detectFormat(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            String format = readers.next().getFormatName().toLowerCase(Locale.ROOT);
+            return format.equals("jpeg") ? "jpg" : format;
+        }
+    }
+
+    public static String contentType(String filename) {
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    /**
+     * The content hash an object belongs to, shared by an original and all of its variants.
+     */
+    public static String baseName(String key) {
+        for (Variant variant : Variant.values()) {
+            String suffix = "-" + variant.name().toLowerCase(Locale.ROOT) + ".jpg";
+            if (key.endsWith(suffix)) {
+                return key.substring(0, key.length() - suffix.length());
+            }
+        }
+        int dot = key.lastIndexOf('.');
+        return dot > 0 ? key.substring(0, dot) : key;
+    }
+
+    private static String variantName(String filename, Variant variant) {
+        int dot = filename.lastIndexOf('.');
+        String base = dot > 0 ? filename.substring(0, dot) : filename;
+        return base + "-" + variant.name().toLowerCase(Locale.ROOT) + ".jpg";
+    }
+
+    /**
+     * A fresh temp file next to the local uploads, so a local store can move it into place atomically.
+     */
+    public Path stagingFile() throws IOException {
+        Path staging = Paths.get(uploadDir, STAGING_DIR).toAbsolutePath().normalize();
+        Files.createDirectories(staging);
+        return staging.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.rentit.service;
+
+import com.rentit.repository.UploadedImageRepository;
+import com.rentit.storage.ImageStore;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mark-and-sweep collector for stored images no listing uses any more. Marks the content hashes referenced
+ * from property_images, then sweeps the store for objects outside that set. An original and its variants are
+ * removed together, only once every one of them is older than the grace period, so uploads that are not
+ * attached to a listing yet survive. Deletes go out in small batches, each re-checked against the database
+ * and followed by a pause. The uploader records of a removed image go with it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrphanImageCollector {
+
+    private final ImageStore imageStore;
+    private final ImageReferences imageReferences;
+    private final UploadedImageRepository uploadedImageRepository;
+
+    @Value("${images.gc.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${images.gc.batch-size:100}")
+    private int batchSize;
+
+    @Value("${images.gc.batch-delay-ms:500}")
+    private long batchDelayMs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-gc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    private record Group(List<String> keys, long bytes, Instant newest) {
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${images.gc.interval-ms:21600000}", initialDelayString = "${images.gc.interval-ms:21600000}")
+    public void scheduledRun() {
+        if (!start()) {
+            log.debug("Skipping scheduled image collection, previous run still active");
+        }
+    }
+
+    /**
+     * Starts a collection in the background. Returns false when one is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(this::collect);
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    private void collect() {
+        long started = System.nanoTime();
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong deleted = new AtomicLong();
+        AtomicLong reclaimedBytes = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        int orphaned = 0;
+        try {
+            Set<String> referenced = imageReferences.referencedBaseNames();
+
+            Map<String, Group> candidates = new ConcurrentHashMap<>();
+            imageStore.forEach((key, info) -> {
+                scanned.incrementAndGet();
+                String baseName = ImageService.baseName(key);
+                if (!referenced.contains(baseName)) {
+                    candidates.merge(baseName, new Group(List.of(key), info.size(), info.lastModified()), OrphanImageCollector::merge);
+                }
+            });
+
+            Instant cutoff = Instant.now().minus(Duration.ofHours(gracePeriodHours));
+            List<Group> expired = candidates.values().stream()
+                    .filter(group -> group.newest().isBefore(cutoff))
+                    .toList();
+            orphaned = expired.size();
+
+            for (int from = 0; from < expired.size(); from += batchSize) {
+                if (from > 0) {
+                    Thread.sleep(batchDelayMs);
+                }
+                sweep(expired.subList(from, Math.min(from + batchSize, expired.size())), deleted, reclaimedBytes, failed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.error("Orphan image collection aborted", e);
+        } finally {
+            Map<String, Object> report = new HashMap<>();
+            report.put("scanned", scanned.get());
+            report.put("orphaned", orphaned);
+            report.put("deleted", deleted.get());
+            report.put("reclaimedBytes", reclaimedBytes.get());
+            report.put("failed", failed.get());
+            report.put("durationMs", (System.nanoTime() - started) / 1_000_000);
+            report.put("finishedAt", LocalDateTime.now().toString());
+            lastRun = report;
+            running.set(false);
+            log.info("Orphan image collection finished: {}", report);
+        }
+    }
+
+    private void sweep(List<Group> batch, AtomicLong deleted, AtomicLong reclaimedBytes, AtomicLong failed) {
+        // A listing may have picked up one of these images since the mark phase
+        List<String> keys = new ArrayList<>();
+        batch.forEach(group -> keys.addAll(group.keys()));
+        Set<String> nowReferenced = imageReferences.referencedAmong(keys);
+
+        List<String> removed = new ArrayList<>();
+        for (Group group : batch) {
+            String baseName = ImageService.baseName(group.keys().get(0));
+            if (nowReferenced.contains(baseName)) {
+                continue;
+            }
+            try {
+                for (String key : group.keys()) {
+                    imageStore.delete(key);
+                    deleted.incrementAndGet();
+                }
+                reclaimedBytes.addAndGet(group.bytes());
+                removed.add(baseName);
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                log.warn("Failed to delete orphaned image {}: {}", group.keys(), e.getMessage());
+            }
+        }
+        if (!removed.isEmpty()) {
+            uploadedImageRepository.deleteByContentHashIn(removed);
+        }
+    }
+
+    private static Group merge(Group a, Group b) {
+        List<String> keys = new ArrayList<>(a.keys());
+        keys.addAll(b.keys());
+        return new Group(keys, a.bytes() + b.bytes(), a.newest().isAfter(b.newest()) ? a.newest() : b.newest());
+    }
+}
@@ -0,0 +1,305 @@
+package com.rentit.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rentit.dto.ImageDTO;
+import com.rentit.dto.PropertyRequest;
+import com.rentit.entity.Property;
+import com.rentit.entity.PropertyImage;
+import com.rentit.event.EventPublisher;
+import com.rentit.security.AuthenticatedUser;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk property onboarding from an NDJSON stream (one PropertyRequest per line).
+ * Lines are parsed and validated one at a time; valid rows are written with JDBC batch inserts
+ * and committed in chunks, so a bad row only fails itself and memory stays bounded.
+ * The inserts are built at startup from the Hibernate mapping and must set every mapped column,
+ * so a new or renamed field on Property fails the application on startup instead of falling back
+ * to a database default.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PropertyImportService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    // Entity paths written for each property, in the order propertyRow() supplies their values
+    private static final List<String> PROPERTY_PATHS = List.of(
+            "owner", "title", "description", "propertyType", "rentAmount", "deposit", "address",
+            "city", "state", "pincode", "latitude", "longitude", "bedrooms", "bathrooms", "areaSqft",
+            "availabilityStatus", "isVerified", "views",
+            "rating.ratingCount", "rating.ratingSum", "rating.ratingAverage", "rating.oneStarCount",
+            "rating.twoStarCount", "rating.threeStarCount", "rating.fourStarCount", "rating.fiveStarCount",
+            "deletedAt", "version", "createdAt", "updatedAt");
+    private static final List<String> IMAGE_PATHS = List.of("property", "url", "isPrimary", "createdAt");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final AnalyticsService analyticsService;
+    private final EventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private String insertProperty;
+    private String[] propertyKeyColumns;
+    private String insertImage;
+    private String insertAmenity;
+
+    @PostConstruct
+    void buildInserts() {
+        MappingMetamodel metamodel = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel();
+
+        AbstractEntityPersister properties = (AbstractEntityPersister) metamodel.getEntityDescriptor(Property.class);
+        insertProperty = insertFor(properties, PROPERTY_PATHS);
+        propertyKeyColumns = properties.getIdentifierColumnNames();
+
+        insertImage = insertFor((AbstractEntityPersister) metamodel.getEntityDescriptor(PropertyImage.class), IMAGE_PATHS);
+
+        AbstractCollectionPersister amenities = (AbstractCollectionPersister)
+                metamodel.getCollectionDescriptor(Property.class.getName() + ".amenities");
+        List<String> amenityColumns = new ArrayList<>(List.of(amenities.getKeyColumnNames()));
+        amenityColumns.addAll(List.of(amenities.getElementColumnNames()));
+        insertAmenity = insert(amenities.getTableName(), amenityColumns);
+    }
+
+    /**
+     * Builds an insert over the columns of the given paths, failing if any mapped column is left out.
+     */
+    private static String insertFor(AbstractEntityPersister persister, List<String> paths) {
+        List<String> columns = new ArrayList<>();
+        for (String path : paths) {
+            columns.addAll(List.of(persister.getPropertyColumnNames(path)));
+        }
+
+        List<String> missing = new ArrayList<>();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].isCollectionType()) {
+                continue;
+            }
+            for (String column : persister.getPropertyColumnNames(i)) {
+                if (!columns.contains(column)) {
+                    missing.add(persister.getPropertyNames()[i] + " (" + column + ")");
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Property import does not set " + String.join(", ", missing)
+                    + " on " + persister.getTableName());
+        }
+        return insert(persister.getTableName(), columns);
+    }
+
+    private static String insert(String table, List<String> columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    public Map<String, Object> importProperties(InputStream input, AuthenticatedUser currentUser) {
+        Long ownerId = currentUser.getId();
+
+        long started = System.nanoTime();
+        long imported = 0;
+        long failed = 0;
+        int lineNumber = 0;
+        List<PropertyRequest> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Map<String, Object>> errors = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String error = parse(line, chunk);
+                if (error != null) {
+                    failed++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(Map.of("line", lineNumber, "error", error));
+                    }
+                    continue;
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    imported += writeChunk(chunk, ownerId);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read import: " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            imported += writeChunk(chunk, ownerId);
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        log.info("Imported {} properties ({} failed) in {} ms ({} rows/s)", imported, failed, elapsedMs, imported * 1000 / elapsedMs);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("imported", imported);
+        response.put("failed", failed);
+        response.put("errors", errors);
+        return response;
+    }
+
+    /**
+     * Parses and validates one line, adding it to the chunk. Returns an error message instead when it is invalid.
+     */
+    private String parse(String line, List<PropertyRequest> chunk) {
+        PropertyRequest request;
+        try {
+            request = objectMapper.readValue(line, PropertyRequest.class);
+        } catch (JsonProcessingException e) {
+            return "Malformed JSON: " + e.getOriginalMessage();
+        }
+        Set<ConstraintViolation<PropertyRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        chunk.add(request);
+        return null;
+    }
+
+    private int writeChunk(List<PropertyRequest> chunk, Long ownerId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = transaction.execute(status -> {
+            List<Long> propertyIds = insertProperties(chunk, ownerId, now);
+            insertImages(chunk, propertyIds, now);
+            insertAmenities(chunk, propertyIds);
+
+            analyticsService.propertiesCreated(Property.AvailabilityStatus.DRAFT, propertyIds.size());
+            // Every instance indexes the new properties from these events, like any other property change
+            eventPublisher.propertiesChanged(propertyIds);
+            return propertyIds;
+        });
+        return ids == null ? 0 : ids.size();
+    }
+
+    private List<Long> insertProperties(List<PropertyRequest> chunk, Long ownerId, LocalDateTime createdAt) {
+        Timestamp now = Timestamp.valueOf(createdAt);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(insertProperty, propertyKeyColumns),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] values = propertyRow(chunk.get(i), ownerId, now);
+                        for (int column = 0; column < values.length; column++) {
+                            ps.setObject(column + 1, values[column], SQL_TYPES[column]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                },
+                keyHolder
+        );
+        return keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Values for PROPERTY_PATHS, in the same order. Imported properties start as unverified drafts
+     * with no views or ratings, like ones created through the API.
+     */
+    private static Object[] propertyRow(PropertyRequest request, Long ownerId, Timestamp now) {
+        return new Object[]{
+                ownerId, request.getTitle(), request.getDescription(), request.getPropertyType().name(),
+                request.getRentAmount(), request.getDeposit(), request.getAddress(),
+                request.getCity(), request.getState(), request.getPincode(), request.getLatitude(), request.getLongitude(),
+                request.getBedrooms(), request.getBathrooms(), request.getAreaSqft(),
+                Property.AvailabilityStatus.DRAFT.name(), false, 0L,
+                0L, 0L, 0.0, 0L, 0L, 0L, 0L, 0L,
+                null, 0L, now, now
+        };
+    }
+
+    private static final int[] SQL_TYPES = {
+            Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.DOUBLE, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.DOUBLE, Types.INTEGER, Types.INTEGER, Types.DOUBLE,
+            Types.VARCHAR, Types.BOOLEAN, Types.BIGINT,
+            Types.BIGINT, Types.BIGINT, Types.DOUBLE, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+            Types.TIMESTAMP, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+
+    private void insertImages(List<PropertyRequest> chunk, List<Long> propertyIds, LocalDateTime createdAt) {
+        Timestamp now = Timestamp.valueOf(createdAt);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            List<ImageDTO> images = chunk.get(i).getImages();
+            if (images == null) {
+                continue;
+            }
+            for (ImageDTO image : images) {
+                if (image != null && image.getUrl() != null) {
+                    rows.add(new Object[]{propertyIds.get(i), image.getUrl(), Boolean.TRUE.equals(image.getIsPrimary()), now});
+                }
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertImage, rows);
+        }
+    }
+
+    private void insertAmenities(List<PropertyRequest> chunk, List<Long> propertyIds) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            List<String> amenities = chunk.get(i).getAmenities();
+            if (amenities == null) {
+                continue;
+            }
+            for (String amenity : amenities) {
+                rows.add(new Object[]{propertyIds.get(i), amenity});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertAmenity, rows);
+        }
+    }
+}
@@ -4,17 +4,33 @@ import com.rentit.dto.*;
 import com.rentit.entity.Property;
 import com.rentit.entity.PropertyImage;
 import com.rentit.entity.User;
+import com.rentit.event.EventPublisher;
 import com.rentit.exception.ResourceNotFoundException;
+import com.rentit.mapper.DtoMapper;
 import com.rentit.repository.PropertyRepository;
-import com.rentit.repository.UserRepository;
+import com.rentit.search.PropertyGeoIndex;
+import com.rentit.search.PropertySearchIndex;
+import com.rentit.search.PropertySpecifications;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.security.UserReferences;
+import com.rentit.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,13 +38,18 @@ import java.util.stream.Collectors;
 public class PropertyService {
 
     private final PropertyRepository propertyRepository;
-    private final UserRepository userRepository;
+    private final UserReferences userReferences;
     private final ModelMapper modelMapper;
+    private final DtoMapper dtoMapper;
+    private final PropertySearchIndex searchIndex;
+    private final PropertyGeoIndex geoIndex;
+    private final PropertyViewCounter viewCounter;
+    private final AnalyticsService analyticsService;
+    private final EventPublisher eventPublisher;
 
     @Transactional
-    public PropertyDTO createProperty(PropertyRequest request, String userEmail) {
-        User owner = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public PropertyDTO createProperty(PropertyRequest request, AuthenticatedUser currentUser) {
+        User owner = userReferences.reference(currentUser);
 
         Property property = modelMapper.map(request, Property.class);
         property.setOwner(owner);
@@ -46,36 +67,47 @@ public class PropertyService {
                     .collect(Collectors.toList()));
         }
 
-        Property savedProperty = propertyRepository.save(property);
-        return mapToDTO(savedProperty);
+        Property savedProperty = userReferences.insert(currentUser, () -> propertyRepository.save(property));
+        analyticsService.propertyCreated(savedProperty.getAvailabilityStatus());
+        eventPublisher.propertyChanged(savedProperty.getId());
+        return dtoMapper.toPropertyDTO(savedProperty);
     }
 
     public Page<PropertyDTO> getAllProperties(Pageable pageable) {
         Page<Property> properties = propertyRepository.findByDeletedAtIsNull(pageable);
-        return properties.map(this::mapToDTO);
+        return properties.map(dtoMapper::toPropertyDTO);
     }
 
-    @Transactional
     public PropertyDTO getPropertyById(Long id) {
         Property property = propertyRepository.findByIdAndDeletedAtIsNull(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
 
-        // Increment views
-        property.setViews(property.getViews() + 1);
-        propertyRepository.save(property);
+        viewCounter.increment(id);
+
+        PropertyDTO dto = dtoMapper.toPropertyDTO(property);
+        dto.setViews(property.getViews() + viewCounter.pendingViews(id));
+        return dto;
+    }
 
-        return mapToDTO(property);
+    public CursorPage<PropertyDTO> getAllPropertiesAfter(String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, limit);
+        Slice<Property> properties = position == null
+                ? propertyRepository.findByDeletedAtIsNullOrderByCreatedAtDescIdDesc(pageable)
+                : propertyRepository.findLiveBefore(position.createdAt(), position.id(), pageable);
+        return CursorPage.of(properties, dtoMapper::toPropertyDTO, p -> new KeysetCursor(p.getCreatedAt(), p.getId()));
+    }
+
+    public long approximatePropertyCount() {
+        return analyticsService.approximatePropertyCount();
     }
 
     @Transactional
-    public PropertyDTO updateProperty(Long id, PropertyRequest request, String userEmail) {
+    public PropertyDTO updateProperty(Long id, PropertyRequest request, AuthenticatedUser currentUser) {
         Property property = propertyRepository.findByIdAndDeletedAtIsNull(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!property.getOwner().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(property.getOwner().getId())) {
             throw new RuntimeException("Not authorized to update this property");
         }
 
@@ -93,52 +125,49 @@ public class PropertyService {
         }
 
         Property updatedProperty = propertyRepository.save(property);
-        return mapToDTO(updatedProperty);
+        eventPublisher.propertyChanged(updatedProperty.getId());
+        return dtoMapper.toPropertyDTO(updatedProperty);
     }
 
     @Transactional
-    public void deleteProperty(Long id, String userEmail) {
+    public void deleteProperty(Long id, AuthenticatedUser currentUser) {
         Property property = propertyRepository.findByIdAndDeletedAtIsNull(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!property.getOwner().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(property.getOwner().getId())) {
             throw new RuntimeException("Not authorized to delete this property");
         }
 
         property.setDeletedAt(LocalDateTime.now());
         propertyRepository.save(property);
+        analyticsService.propertyDeleted(property.getAvailabilityStatus());
+        eventPublisher.propertyChanged(id);
     }
 
-    public Page<PropertyDTO> getPropertiesByOwner(Long ownerId, Pageable pageable, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!user.getId().equals(ownerId) && user.getRole() != User.Role.ADMIN) {
+    public Page<PropertyDTO> getPropertiesByOwner(Long ownerId, Pageable pageable, AuthenticatedUser currentUser) {
+        if (!currentUser.isSelfOrAdmin(ownerId)) {
             throw new RuntimeException("Not authorized to view these properties");
         }
 
         Page<Property> properties = propertyRepository.findByOwnerIdAndDeletedAtIsNull(ownerId, pageable);
-        return properties.map(this::mapToDTO);
+        return properties.map(dtoMapper::toPropertyDTO);
     }
 
     @Transactional
-    public PropertyDTO updatePropertyStatus(Long id, Property.AvailabilityStatus status, String userEmail) {
+    public PropertyDTO updatePropertyStatus(Long id, Property.AvailabilityStatus status, AuthenticatedUser currentUser) {
         Property property = propertyRepository.findByIdAndDeletedAtIsNull(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!property.getOwner().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(property.getOwner().getId())) {
             throw new RuntimeException("Not authorized to update this property");
         }
 
+        Property.AvailabilityStatus previousStatus = property.getAvailabilityStatus();
         property.setAvailabilityStatus(status);
         Property updatedProperty = propertyRepository.save(property);
-        return mapToDTO(updatedProperty);
+        analyticsService.propertyStatusChanged(previousStatus, status);
+        eventPublisher.propertyChanged(updatedProperty.getId());
+        return dtoMapper.toPropertyDTO(updatedProperty);
     }
 
     public Page<PropertyDTO> searchProperties(
@@ -147,28 +176,49 @@ public class PropertyService {
             Double maxPrice,
             Property.PropertyType propertyType,
             Integer bedrooms,
+            Property.AvailabilityStatus status,
+            LocalDate availableFrom,
+            LocalDate availableTo,
             Pageable pageable
     ) {
-        Page<Property> properties = propertyRepository.searchProperties(
-                city, minPrice, maxPrice, propertyType, bedrooms, pageable
+        if ((availableFrom == null) != (availableTo == null)) {
+            throw new RuntimeException("availableFrom and availableTo must be given together");
+        }
+        if (availableFrom != null && !availableTo.isAfter(availableFrom)) {
+            throw new RuntimeException("availableTo must be after availableFrom");
+        }
+
+        Optional<Page<Long>> hits = searchIndex.search(
+                city, minPrice, maxPrice, propertyType, bedrooms, status, availableFrom, availableTo, pageable
         );
-        return properties.map(this::mapToDTO);
+        if (hits.isPresent()) {
+            return loadPage(hits.get(), pageable);
+        }
+
+        Page<Property> properties = propertyRepository.findAll(PropertySpecifications.search(
+                city, minPrice, maxPrice, propertyType, bedrooms, status, availableFrom, availableTo
+        ), pageable);
+        return properties.map(dtoMapper::toPropertyDTO);
     }
 
-    private PropertyDTO mapToDTO(Property property) {
-        PropertyDTO dto = modelMapper.map(property, PropertyDTO.class);
-        dto.setOwner(modelMapper.map(property.getOwner(), UserDTO.class));
-        
-        if (property.getImages() != null) {
-            dto.setImages(property.getImages().stream()
-                    .map(img -> ImageDTO.builder()
-                            .id(img.getId())
-                            .url(img.getUrl())
-                            .isPrimary(img.getIsPrimary())
-                            .build())
-                    .collect(Collectors.toList()));
+    public Page<PropertyDTO> searchNearby(Double lat, Double lng, Double radiusKm, Pageable pageable) {
+        if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+            throw new RuntimeException("Invalid coordinates");
         }
-        
-        return dto;
+        if (radiusKm <= 0) {
+            throw new RuntimeException("Radius must be positive");
+        }
+        return loadPage(geoIndex.nearby(lat, lng, radiusKm, pageable), pageable);
+    }
+
+    private Page<PropertyDTO> loadPage(Page<Long> ids, Pageable pageable) {
+        Map<Long, Property> byId = propertyRepository.findByIdInAndDeletedAtIsNull(ids.getContent()).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+        List<PropertyDTO> content = ids.getContent().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(dtoMapper::toPropertyDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
     }
 }
@@ -0,0 +1,110 @@
+package com.rentit.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind counter for property views.
+ * Reads only bump an in-memory adder; deltas are flushed periodically as one JDBC batch of
+ * {@code views = views + ?} updates, so concurrent reads never lock or overwrite the row.
+ * Flushes never overlap, and a property with no views since the last flush is dropped from the map.
+ * Adding to an entry and dropping it both run inside the map's per-key compute, so a view can never
+ * land on an adder that has already been removed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PropertyViewCounter {
+
+    private static final String FLUSH_SQL = "UPDATE properties SET views = views + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    // The scheduled flush and the shutdown flush could otherwise both read and subtract the same delta
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public void increment(Long propertyId) {
+        add(propertyId, 1);
+    }
+
+    public long pendingViews(Long propertyId) {
+        LongAdder adder = pending.get(propertyId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    public long pendingTotal() {
+        long total = 0;
+        for (LongAdder adder : pending.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${views.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            write(drain());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private List<Object[]> drain() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            LongAdder adder = entry.getValue();
+            // Subtract exactly what was read so increments racing with the flush stay pending.
+            long delta = adder.sum();
+            if (delta != 0) {
+                adder.add(-delta);
+                batch.add(new Object[]{delta, entry.getKey()});
+            } else {
+                // Idle since the last flush, unless a view arrived after the read above
+                pending.compute(entry.getKey(), (id, current) -> current == null || current.sum() == 0 ? null : current);
+            }
+        }
+        return batch;
+    }
+
+    private void write(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            log.debug("Flushed view counts for {} properties", batch.size());
+        } catch (RuntimeException e) {
+            for (Object[] row : batch) {
+                add((Long) row[1], (Long) row[0]);
+            }
+            log.warn("Failed to flush view counts, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void add(Long propertyId, long views) {
+        pending.compute(propertyId, (id, adder) -> {
+            LongAdder counter = adder != null ? adder : new LongAdder();
+            counter.add(views);
+            return counter;
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -1,27 +1,36 @@
 package com.rentit.service;
 
+import com.rentit.dto.CursorPage;
 import com.rentit.dto.MessageResponse;
 import com.rentit.dto.ReviewDTO;
 import com.rentit.dto.ReviewRequest;
-import com.rentit.dto.UserDTO;
 import com.rentit.entity.Booking;
 import com.rentit.entity.Property;
+import com.rentit.entity.RatingSummary;
 import com.rentit.entity.Review;
 import com.rentit.entity.User;
+import com.rentit.event.EventPublisher;
 import com.rentit.exception.ResourceNotFoundException;
+import com.rentit.mapper.DtoMapper;
 import com.rentit.repository.BookingRepository;
 import com.rentit.repository.PropertyRepository;
 import com.rentit.repository.ReviewRepository;
-import com.rentit.repository.UserRepository;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.security.UserReferences;
+import com.rentit.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -30,18 +39,24 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ReviewService {
 
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
     private final ReviewRepository reviewRepository;
     private final PropertyRepository propertyRepository;
     private final BookingRepository bookingRepository;
-    private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
+    private final UserReferences userReferences;
+    private final DtoMapper dtoMapper;
+    private final AnalyticsService analyticsService;
+    private final EventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
 
     @Transactional
-    public ReviewDTO submitReview(ReviewRequest request, String userEmail) {
-        User tenant = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public ReviewDTO submitReview(ReviewRequest request, AuthenticatedUser currentUser) {
+        User tenant = userReferences.reference(currentUser);
 
-        Property property = propertyRepository.findByIdAndDeletedAtIsNull(request.getPropertyId())
+        // Lock the property row so concurrent reviews update its rating summary one at a time
+        Property property = propertyRepository.findWithLockById(request.getPropertyId())
+                .filter(p -> p.getDeletedAt() == null)
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
 
         // Check if user has an approved booking
@@ -68,43 +83,76 @@ public class ReviewService {
                 .comment(request.getComment())
                 .build();
 
-        Review savedReview = reviewRepository.save(review);
-        return mapToDTO(savedReview);
+        Review savedReview = userReferences.insert(currentUser, () -> reviewRepository.save(review));
+        property.getRating().add(request.getRating());
+        eventPublisher.propertyChanged(property.getId());
+        analyticsService.reviewCreated();
+        return dtoMapper.toReviewDTO(savedReview);
     }
 
     public Map<String, Object> getPropertyReviews(Long propertyId, Pageable pageable) {
         Page<Review> reviews = reviewRepository.findByPropertyId(propertyId, pageable);
-        
-        Double avgRating = reviewRepository.getAverageRatingByPropertyId(propertyId);
-        Long totalReviews = reviewRepository.countByPropertyId(propertyId);
+
+        RatingSummary rating = propertyRepository.findById(propertyId)
+                .map(Property::getRating)
+                .orElseGet(RatingSummary::new);
+
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (int stars = 5; stars >= 1; stars--) {
+            distribution.put(String.valueOf(stars), rating.getStarCount(stars));
+        }
 
         List<ReviewDTO> reviewDTOs = reviews.getContent().stream()
-                .map(this::mapToDTO)
+                .map(dtoMapper::toReviewDTO)
                 .collect(Collectors.toList());
 
         Map<String, Object> response = new HashMap<>();
         response.put("reviews", reviewDTOs);
         response.put("currentPage", reviews.getNumber());
         response.put("totalPages", reviews.getTotalPages());
-        response.put("totalReviews", totalReviews);
-        response.put("averageRating", avgRating != null ? String.format("%.1f", avgRating) : "0.0");
+        response.put("totalReviews", rating.getRatingCount());
+        response.put("averageRating", String.format("%.1f", rating.getRatingAverage()));
+        response.put("ratingDistribution", distribution);
+
+        return response;
+    }
+
+    public Map<String, Object> getPropertyReviewsAfter(Long propertyId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, limit);
+        Slice<Review> reviews = position == null
+                ? reviewRepository.findByPropertyIdOrderByCreatedAtDescIdDesc(propertyId, pageable)
+                : reviewRepository.findByPropertyIdBefore(propertyId, position.createdAt(), position.id(), pageable);
+        CursorPage<ReviewDTO> page = CursorPage.of(reviews, dtoMapper::toReviewDTO, r -> new KeysetCursor(r.getCreatedAt(), r.getId()));
+
+        RatingSummary rating = propertyRepository.findById(propertyId)
+                .map(Property::getRating)
+                .orElseGet(RatingSummary::new);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("reviews", page.getContent());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("hasNext", page.isHasNext());
+        response.put("totalReviews", rating.getRatingCount());
+        response.put("averageRating", String.format("%.1f", rating.getRatingAverage()));
 
         return response;
     }
 
     @Transactional
-    public ReviewDTO updateReview(Long id, ReviewRequest request, String userEmail) {
-        Review review = reviewRepository.findById(id)
+    public ReviewDTO updateReview(Long id, ReviewRequest request, AuthenticatedUser currentUser) {
+        Review review = reviewRepository.findWithTenantById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Review not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!review.getTenant().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(review.getTenant().getId())) {
             throw new RuntimeException("Not authorized to update this review");
         }
 
-        if (request.getRating() != null) {
+        if (request.getRating() != null && !request.getRating().equals(review.getRating())) {
+            Property property = lockProperty(review);
+            property.getRating().remove(review.getRating());
+            property.getRating().add(request.getRating());
+            eventPublisher.propertyChanged(property.getId());
             review.setRating(request.getRating());
         }
         if (request.getComment() != null) {
@@ -112,34 +160,94 @@ public class ReviewService {
         }
 
         Review updatedReview = reviewRepository.save(review);
-        return mapToDTO(updatedReview);
+        return dtoMapper.toReviewDTO(updatedReview);
     }
 
     @Transactional
-    public MessageResponse deleteReview(Long id, String userEmail) {
+    public MessageResponse deleteReview(Long id, AuthenticatedUser currentUser) {
         Review review = reviewRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Review not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!review.getTenant().getId().equals(user.getId()) && user.getRole() != User.Role.ADMIN) {
+        if (!currentUser.isSelfOrAdmin(review.getTenant().getId())) {
             throw new RuntimeException("Not authorized to delete this review");
         }
 
+        Property property = lockProperty(review);
+        property.getRating().remove(review.getRating());
+        eventPublisher.propertyChanged(property.getId());
+
         reviewRepository.delete(review);
+        analyticsService.reviewDeleted();
         return new MessageResponse("Review deleted successfully");
     }
 
-    private ReviewDTO mapToDTO(Review review) {
-        ReviewDTO dto = new ReviewDTO();
-        dto.setId(review.getId());
-        dto.setPropertyId(review.getProperty().getId());
-        dto.setTenant(modelMapper.map(review.getTenant(), UserDTO.class));
-        dto.setRating(review.getRating());
-        dto.setComment(review.getComment());
-        dto.setCreatedAt(review.getCreatedAt());
-        dto.setUpdatedAt(review.getUpdatedAt());
-        return dto;
+    /**
+     * Recomputes every property's rating summary from the reviews table, in id-ordered chunks that each
+     * commit on their own. A chunk locks its property rows first, the same lock review writes take, so
+     * no review can land between counting and writing. Only summaries that were out of date are written,
+     * and each of those is republished so the search indexes pick it up.
+     */
+    public int backfillRatings() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Pageable chunk = PageRequest.of(0, BACKFILL_CHUNK_SIZE);
+        int updated = 0;
+        long lastId = 0L;
+        while (true) {
+            long afterId = lastId;
+            ChunkResult result = transaction.execute(status -> backfillChunk(afterId, chunk));
+            updated += result.updated();
+            if (result.lastId() == null) {
+                return updated;
+            }
+            lastId = result.lastId();
+        }
+    }
+
+    private ChunkResult backfillChunk(long afterId, Pageable chunk) {
+        List<Property> properties = propertyRepository.findWithLockByIdGreaterThan(afterId, chunk);
+        if (properties.isEmpty()) {
+            return new ChunkResult(0, null);
+        }
+
+        Map<Long, RatingSummary> summaries = new HashMap<>();
+        List<Long> ids = properties.stream().map(Property::getId).toList();
+        for (Object[] row : reviewRepository.countRatingsByPropertyIdIn(ids)) {
+            Long propertyId = (Long) row[0];
+            int stars = (Integer) row[1];
+            long count = (Long) row[2];
+            summaries.computeIfAbsent(propertyId, id -> new RatingSummary()).add(stars, count);
+        }
+
+        int updated = 0;
+        for (Property property : properties) {
+            RatingSummary summary = summaries.getOrDefault(property.getId(), new RatingSummary());
+            if (!sameCounts(property.getRating(), summary)) {
+                property.setRating(summary);
+                eventPublisher.propertyChanged(property.getId());
+                updated++;
+            }
+        }
+        return new ChunkResult(updated, ids.get(ids.size() - 1));
+    }
+
+    private static boolean sameCounts(RatingSummary current, RatingSummary expected) {
+        if (current == null) {
+            return false;
+        }
+        for (int stars = 1; stars <= 5; stars++) {
+            if (current.getStarCount(stars) != expected.getStarCount(stars)) {
+                return false;
+            }
+        }
+        return current.getRatingSum().equals(expected.getRatingSum())
+                && current.getRatingCount().equals(expected.getRatingCount());
+    }
+
+    private record ChunkResult(int updated, Long lastId) {
+    }
+
+    private Property lockProperty(Review review) {
+        return propertyRepository.findWithLockById(review.getProperty().getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Property not found"));
     }
 }
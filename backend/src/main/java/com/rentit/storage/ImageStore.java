@@ -0,0 +1,63 @@
+package com.rentit.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Where image bytes live. Keys are flat file names (content hashes plus extension), so any backend
+ * can serve them and several application instances can share one store.
+ */
+public interface ImageStore {
+
+    record ObjectInfo(long size, Instant lastModified) {
+    }
+
+    /**
+     * Stores a finished local file under the key. The file is consumed: it is moved or deleted afterwards.
+     */
+    void put(String key, Path file, String contentType) throws IOException;
+
+    Optional<ObjectInfo> stat(String key) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Visits every stored object. The action may be called from several threads at once.
+     */
+    void forEach(BiConsumer<String, ObjectInfo> action) throws IOException;
+
+    /**
+     * Marks an existing object as freshly written, so a re-upload of the same bytes restarts its garbage collection grace period.
+     */
+    void touch(String key) throws IOException;
+
+    /**
+     * Path on this node's disk, when the store is local; lets the file be sent with zero-copy I/O.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Time-limited URL clients can fetch the object from directly, when the backend supports it.
+     */
+    default Optional<URI> directUrl(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * URL written into API responses for a stored image.
+     */
+    String publicUrl(String key);
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+}
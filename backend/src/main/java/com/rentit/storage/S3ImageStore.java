@@ -0,0 +1,245 @@
+package com.rentit.storage;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps images in an S3-compatible bucket (AWS S3, MinIO, ...). Reads are redirected to presigned URLs
+ * so image bytes never pass through the application.
+ */
+public class S3ImageStore implements ImageStore, AutoCloseable {
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final Duration presignTtl;
+    private final long partSize;
+
+    public S3ImageStore(S3Client client, S3Presigner presigner, String bucket, Duration presignTtl, long partSize) {
+        this.client = client;
+        this.presigner = presigner;
+        this.bucket = bucket;
+        this.presignTtl = presignTtl;
+        this.partSize = partSize;
+    }
+
+    @Override
+    public void put(String key, Path file, String contentType) throws IOException {
+        try {
+            long size = Files.size(file);
+            if (size > partSize) {
+                putMultipart(key, file, contentType, size);
+            } else {
+                client.putObject(request -> request.bucket(bucket).key(key).contentType(contentType),
+                        RequestBody.fromFile(file));
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to store " + key + ": " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Uploads the file in parts of {@code partSize}. Each part is streamed from its range of the file, opened
+     * afresh for every attempt, so no part is held on the heap and a retried part re-reads the same bytes.
+     */
+    private void putMultipart(String key, Path file, String contentType, long size) throws IOException {
+        String uploadId = client.createMultipartUpload(request -> request.bucket(bucket).key(key).contentType(contentType))
+                .uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            for (int partNumber = 1; (long) (partNumber - 1) * partSize < size; partNumber++) {
+                long offset = (partNumber - 1) * partSize;
+                long length = Math.min(partSize, size - offset);
+                int number = partNumber;
+                String eTag = client.uploadPart(request -> request.bucket(bucket).key(key).uploadId(uploadId).partNumber(number),
+                        RequestBody.fromContentProvider(() -> openRange(file, offset, length), length, "application/octet-stream"))
+                        .eTag();
+                parts.add(CompletedPart.builder().partNumber(number).eTag(eTag).build());
+            }
+            client.completeMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()));
+        } catch (RuntimeException e) {
+            try {
+                client.abortMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId));
+            } catch (SdkException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e;
+        }
+    }
+
+    private static InputStream openRange(Path file, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ).position(offset);
+            return new RangeInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads at most {@code remaining} bytes of the wrapped stream.
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read();
+            if (read != -1) {
+                remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(request -> request.bucket(bucket).key(key));
+            return Optional.of(new ObjectInfo(head.contentLength(), head.lastModified()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Failed to stat " + key + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(request -> request.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, ObjectInfo> action) throws IOException {
+        try {
+            client.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucket).build())
+                    .contents()
+                    .forEach(object -> action.accept(object.key(), new ObjectInfo(object.size(), object.lastModified())));
+        } catch (SdkException e) {
+            throw new IOException("Failed to list bucket " + bucket + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        try {
+            // S3 only allows copying an object onto itself when its metadata is replaced
+            String contentType = client.headObject(request -> request.bucket(bucket).key(key)).contentType();
+            client.copyObject(request -> request.sourceBucket(bucket).sourceKey(key)
+                    .destinationBucket(bucket).destinationKey(key)
+                    .contentType(contentType)
+                    .metadataDirective(MetadataDirective.REPLACE));
+        } catch (SdkException e) {
+            throw new IOException("Failed to touch " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<URI> directUrl(String key) {
+        try {
+            return Optional.of(presigner.presignGetObject(request -> request
+                            .signatureDuration(presignTtl)
+                            .getObjectRequest(get -> get.bucket(bucket).key(key)))
+                    .url()
+                    .toURI());
+        } catch (URISyntaxException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String publicUrl(String key) {
+        return "/api/images/" + key;
+    }
+
+    @Override
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+}
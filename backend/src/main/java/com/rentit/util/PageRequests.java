@@ -0,0 +1,29 @@
+package com.rentit.util;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Page requests built from client-supplied page and limit parameters, clamped so a single request cannot
+ * ask the in-memory indexes (or the database) to materialise an arbitrarily deep or wide page.
+ */
+public final class PageRequests {
+
+    public static final int MAX_PAGE = 10_000;
+    public static final int MAX_LIMIT = 100;
+
+    private PageRequests() {
+    }
+
+    public static PageRequest of(int page, int limit) {
+        return of(page, limit, Sort.unsorted());
+    }
+
+    public static PageRequest of(int page, int limit, Sort sort) {
+        return PageRequest.of(Math.min(Math.max(page, 0), MAX_PAGE), limit(limit), sort);
+    }
+
+    public static int limit(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_LIMIT);
+    }
+}
@@ -0,0 +1,135 @@
+package com.rentit.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.BookingRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.support.StatementCounter;
+import com.rentit.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the tenant and owner booking listings against N+1 loading: a page of 20 must cost exactly as
+ * many statements as a page of 2, with property, primary image, tenant and owner on every row, in offset
+ * and in cursor mode.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingListingQueryCountTest {
+
+    private static final int SMALL_PAGE = 2;
+    private static final int LARGE_PAGE = 20;
+    private static final int MAX_STATEMENTS_PER_PAGE = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementCounter statementCounter;
+    private AuthenticatedUser owner;
+    private AuthenticatedUser tenant;
+
+    @BeforeAll
+    void seed() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+        User ownerUser = userRepository.save(TestData.user("booking-listing-owner", User.Role.OWNER));
+        User tenantUser = userRepository.save(TestData.user("booking-listing-tenant", User.Role.TENANT));
+        owner = new AuthenticatedUser(ownerUser);
+        tenant = new AuthenticatedUser(tenantUser);
+
+        // One booking per property, so every row of a page needs a different property and image
+        for (int i = 0; i < 25; i++) {
+            Property property = TestData.property(ownerUser, "Bookingville").title("Booked " + i).build();
+            property = propertyRepository.save(TestData.withImages(property,
+                    "/api/images/booked-" + i + "-a.jpg", "/api/images/booked-" + i + "-b.jpg"));
+            LocalDate checkIn = LocalDate.now().plusDays(10 + 3 * i);
+            bookingRepository.save(TestData.pendingBooking(property, tenantUser, checkIn, checkIn.plusDays(2)));
+        }
+    }
+
+    @Test
+    void tenantListingRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/bookings/tenant/" + tenant.getId())
+                .param("limit", String.valueOf(limit))
+                .with(user(tenant)));
+    }
+
+    @Test
+    void ownerListingRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/bookings/owner/" + owner.getId())
+                .param("limit", String.valueOf(limit))
+                .with(user(owner)));
+    }
+
+    @Test
+    void ownerCursorListingRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/bookings/owner/" + owner.getId())
+                .param("cursor", "")
+                .param("limit", String.valueOf(limit))
+                .with(user(owner)));
+
+        // Pages after the first run the keyset query instead
+        String body = mockMvc.perform(get("/api/bookings/owner/" + owner.getId())
+                        .param("cursor", "")
+                        .param("limit", String.valueOf(SMALL_PAGE))
+                        .with(user(owner)))
+                .andReturn().getResponse().getContentAsString();
+        String next = JsonPath.read(body, "$.nextCursor");
+        assertConstant(limit -> get("/api/bookings/owner/" + owner.getId())
+                .param("cursor", next)
+                .param("limit", String.valueOf(limit))
+                .with(user(owner)));
+    }
+
+    private void assertConstant(IntFunction<RequestBuilder> request) throws Exception {
+        long small = statements(request.apply(SMALL_PAGE), SMALL_PAGE);
+        long large = statements(request.apply(LARGE_PAGE), LARGE_PAGE);
+        assertThat(large).as("statements for a page of %d vs %d", LARGE_PAGE, SMALL_PAGE).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+    }
+
+    private long statements(RequestBuilder request, int expectedRows) throws Exception {
+        return statementCounter.count(() -> mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookings.length()").value(expectedRows))
+                .andExpect(jsonPath("$.bookings[*].propertyTitle").exists())
+                .andExpect(jsonPath("$.bookings[0].primaryImageUrl").value(endsWith("-a.jpg")))
+                .andExpect(jsonPath("$.bookings[0].tenant.id").value(tenant.getId()))
+                .andExpect(jsonPath("$.bookings[0].owner.id").value(owner.getId())));
+    }
+}
@@ -0,0 +1,174 @@
+package com.rentit.controller;
+
+import com.rentit.entity.Booking;
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.BookingRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.security.PrincipalCache;
+import com.rentit.service.BookingService;
+import com.rentit.support.StatementCounter;
+import com.rentit.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the statements each authorized write and read costs now that the caller comes from the cached
+ * principal instead of a user lookup, and checks that a principal outliving its account gets a 404.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CachedPrincipalQueryCountTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementCounter statementCounter;
+    private User ownerUser;
+    private User tenantUser;
+    private AuthenticatedUser owner;
+    private AuthenticatedUser tenant;
+    private Property property;
+
+    @BeforeEach
+    void seed() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+        int n = SEQUENCE.incrementAndGet();
+        ownerUser = userRepository.save(TestData.user("count-owner-" + n, User.Role.OWNER));
+        tenantUser = userRepository.save(TestData.user("count-tenant-" + n, User.Role.TENANT));
+        owner = new AuthenticatedUser(ownerUser);
+        tenant = new AuthenticatedUser(tenantUser);
+        property = propertyRepository.save(TestData.property(ownerUser, "Countville").build());
+    }
+
+    @Test
+    void statusChange() throws Exception {
+        assertStatements(5, patch("/api/properties/" + property.getId() + "/status")
+                .with(user(owner))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\":\"RENTED\"}"));
+    }
+
+    @Test
+    void deleteProperty() throws Exception {
+        assertStatements(3, delete("/api/properties/" + property.getId()).with(user(owner)));
+    }
+
+    @Test
+    void viewBooking() throws Exception {
+        Long id = pendingBooking(10).getId();
+        assertStatements(4, get("/api/bookings/" + id).with(user(tenant)));
+    }
+
+    @Test
+    void approveBooking() throws Exception {
+        Long id = pendingBooking(10).getId();
+        assertStatements(12, patch("/api/bookings/" + id + "/approve").with(user(owner)));
+    }
+
+    @Test
+    void cancelApprovedBooking() throws Exception {
+        Long id = pendingBooking(10).getId();
+        bookingService.approveBooking(id, owner);
+        assertStatements(10, patch("/api/bookings/" + id + "/cancel").with(user(tenant)));
+    }
+
+    @Test
+    void createBooking() throws Exception {
+        LocalDate checkIn = LocalDate.now().plusDays(10);
+        assertStatements(8, post("/api/bookings")
+                .with(user(tenant))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"propertyId\":" + property.getId() + ",\"checkInDate\":\"" + checkIn
+                        + "\",\"checkOutDate\":\"" + checkIn.plusDays(3) + "\"}"));
+    }
+
+    @Test
+    void submitReview() throws Exception {
+        Long id = pendingBooking(10).getId();
+        bookingService.approveBooking(id, owner);
+        assertStatements(7, post("/api/reviews")
+                .with(user(tenant))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"propertyId\":" + property.getId() + ",\"rating\":4,\"comment\":\"Quiet and clean\"}"));
+    }
+
+    @Test
+    void aPrincipalOutlivingItsAccountGetsNotFound() throws Exception {
+        User gone = userRepository.save(TestData.user("count-gone-" + SEQUENCE.incrementAndGet(), User.Role.TENANT));
+        AuthenticatedUser stale = new AuthenticatedUser(gone);
+        principalCache.get(stale.getUsername(), email -> stale);
+        userRepository.delete(gone);
+
+        LocalDate checkIn = LocalDate.now().plusDays(10);
+        mockMvc.perform(post("/api/bookings")
+                        .with(user(stale))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"propertyId\":" + property.getId() + ",\"checkInDate\":\"" + checkIn
+                                + "\",\"checkOutDate\":\"" + checkIn.plusDays(3) + "\"}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("User not found"));
+
+        AtomicInteger reloads = new AtomicInteger();
+        principalCache.get(stale.getUsername(), email -> {
+            reloads.incrementAndGet();
+            return stale;
+        });
+        assertThat(reloads).hasValue(1);
+        assertThat(bookingRepository.findAll())
+                .noneMatch(booking -> booking.getTenant().getId().equals(gone.getId()));
+    }
+
+    private void assertStatements(long expected, RequestBuilder request) throws Exception {
+        long statements = statementCounter.count(() -> mockMvc.perform(request).andExpect(status().is2xxSuccessful()));
+        assertThat(statements).isEqualTo(expected);
+    }
+
+    private Booking pendingBooking(int daysAhead) {
+        LocalDate checkIn = LocalDate.now().plusDays(daysAhead);
+        return bookingRepository.save(TestData.pendingBooking(property, tenantUser, checkIn, checkIn.plusDays(3)));
+    }
+}
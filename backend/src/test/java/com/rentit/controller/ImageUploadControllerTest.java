@@ -0,0 +1,202 @@
+package com.rentit.controller;
+
+import com.rentit.entity.User;
+import com.rentit.repository.UploadedImageRepository;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.storage.ImageStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The multipart upload endpoint parses the request body itself, part by part, and enforces the per-file
+ * size and file count limits. Uploaded images can only be deleted by their uploaders or an admin.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ImageUploadControllerTest {
+
+    private static final String BOUNDARY = "rentit-test-boundary";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private UploadedImageRepository uploadedImageRepository;
+
+    private final AuthenticatedUser uploader = principal(1L, "uploader", User.Role.OWNER);
+    private final AuthenticatedUser otherUploader = principal(2L, "other-uploader", User.Role.TENANT);
+    private final AuthenticatedUser admin = principal(3L, "image-admin", User.Role.ADMIN);
+
+    private record Part(String name, String filename, byte[] content) {
+    }
+
+    @Test
+    void storesEachImagePartUnderItsHash() throws Exception {
+        byte[] first = png(30, 20);
+        byte[] second = png(20, 30);
+
+        upload(List.of(
+                new Part("title", null, "ignored".getBytes(StandardCharsets.UTF_8)),
+                new Part("images", "first.png", first),
+                new Part("images", "", new byte[0]),
+                new Part("images", "second.png", second)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.images", hasSize(2)))
+                .andExpect(jsonPath("$.images[0].filename").value(sha256(first) + ".png"))
+                .andExpect(jsonPath("$.images[1].filename").value(sha256(second) + ".png"))
+                .andExpect(jsonPath("$.images[1].size").value(String.valueOf(second.length)));
+
+        assertThat(imageStore.exists(sha256(first) + ".png")).isTrue();
+        assertThat(imageStore.exists(sha256(second) + ".png")).isTrue();
+    }
+
+    @Test
+    void rejectsMoreFilesThanAllowed() throws Exception {
+        List<Part> parts = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            parts.add(new Part("images", "image-" + i + ".png", png(10 + i, 10)));
+        }
+
+        upload(parts)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("At most 10 images")));
+    }
+
+    @Test
+    void rejectsAFileOverThePerFileCap() throws Exception {
+        byte[] oversized = new byte[6 * 1024 * 1024];
+        new Random(1).nextBytes(oversized);
+        System.arraycopy(png(1, 1), 0, oversized, 0, 8);
+
+        upload(List.of(new Part("images", "huge.png", oversized)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("maximum size")));
+    }
+
+    @Test
+    void rejectsARequestWithoutImages() throws Exception {
+        upload(List.of(new Part("title", null, "no files".getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("'images'")));
+    }
+
+    @Test
+    void onlyTheUploaderMayDeleteAnImage() throws Exception {
+        byte[] image = png(41, 17);
+        String filename = sha256(image) + ".png";
+        upload(singleImage(image), uploader).andExpect(status().isCreated());
+
+        mockMvc.perform(delete("/api/images/" + filename).with(user(otherUploader)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("Not authorized")));
+        assertThat(imageStore.exists(filename)).isTrue();
+
+        mockMvc.perform(delete("/api/images/" + filename).with(user(uploader)))
+                .andExpect(status().isOk());
+        assertThat(imageStore.exists(filename)).isFalse();
+        assertThat(uploadedImageRepository.existsByContentHash(sha256(image))).isFalse();
+    }
+
+    @Test
+    void sharedImagesStayUntilTheLastUploaderDeletesThem() throws Exception {
+        byte[] image = png(43, 17);
+        String filename = sha256(image) + ".png";
+        upload(singleImage(image), uploader).andExpect(status().isCreated());
+        upload(singleImage(image), otherUploader).andExpect(status().isCreated());
+
+        mockMvc.perform(delete("/api/images/" + filename).with(user(uploader)))
+                .andExpect(status().isOk());
+        assertThat(imageStore.exists(filename)).isTrue();
+
+        mockMvc.perform(delete("/api/images/" + filename).with(user(otherUploader)))
+                .andExpect(status().isOk());
+        assertThat(imageStore.exists(filename)).isFalse();
+    }
+
+    @Test
+    void adminsMayDeleteAnyImage() throws Exception {
+        byte[] image = png(47, 17);
+        String filename = sha256(image) + ".png";
+        upload(singleImage(image), uploader).andExpect(status().isCreated());
+
+        mockMvc.perform(delete("/api/images/" + filename).with(user(admin)))
+                .andExpect(status().isOk());
+        assertThat(imageStore.exists(filename)).isFalse();
+        assertThat(uploadedImageRepository.existsByContentHash(sha256(image))).isFalse();
+    }
+
+    private static List<Part> singleImage(byte[] image) {
+        return List.of(new Part("images", "image.png", image));
+    }
+
+    private ResultActions upload(List<Part> parts) throws Exception {
+        return upload(parts, uploader);
+    }
+
+    private ResultActions upload(List<Part> parts, AuthenticatedUser as) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (Part part : parts) {
+            String disposition = "form-data; name=\"" + part.name() + "\""
+                    + (part.filename() != null ? "; filename=\"" + part.filename() + "\"" : "");
+            body.write(("--" + BOUNDARY + "\r\nContent-Disposition: " + disposition + "\r\n"
+                    + (part.filename() != null ? "Content-Type: image/png\r\n" : "") + "\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            body.write(part.content());
+            body.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return mockMvc.perform(post("/api/images/upload")
+                .with(user(as))
+                .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                .content(body.toByteArray()));
+    }
+
+    private static AuthenticatedUser principal(Long id, String name, User.Role role) {
+        return new AuthenticatedUser(User.builder()
+                .id(id)
+                .username(name)
+                .email(name + "@example.com")
+                .password("{noop}password")
+                .role(role)
+                .build());
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,163 @@
+package com.rentit.controller;
+
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.search.PropertyGeoIndex;
+import com.rentit.search.PropertySearchIndex;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.support.StatementCounter;
+import com.rentit.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the property listing endpoints against N+1 loading: a page of 20 must cost exactly as many
+ * statements as a page of 2, with owner, images and amenities on every row.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PropertyListingQueryCountTest {
+
+    private static final String CITY = "Listingville";
+    private static final int SMALL_PAGE = 2;
+    private static final int LARGE_PAGE = 20;
+    private static final int MAX_STATEMENTS_PER_PAGE = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private PropertySearchIndex searchIndex;
+
+    @Autowired
+    private PropertyGeoIndex geoIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementCounter statementCounter;
+    private AuthenticatedUser owner;
+    private AuthenticatedUser admin;
+
+    @BeforeAll
+    void seed() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+        User ownerUser = userRepository.save(TestData.user("listing-owner", User.Role.OWNER));
+        owner = new AuthenticatedUser(ownerUser);
+        admin = new AuthenticatedUser(userRepository.save(TestData.user("listing-admin", User.Role.ADMIN)));
+
+        List<Property> properties = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            properties.add(property(ownerUser, i));
+        }
+        for (Property property : propertyRepository.saveAll(properties)) {
+            // No transaction here, so the indexes apply the entries straight away
+            searchIndex.index(property);
+            geoIndex.index(property);
+        }
+    }
+
+    @Test
+    void pagedListingRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/properties").param("limit", String.valueOf(limit)));
+    }
+
+    @Test
+    void cursorListingRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/properties").param("cursor", "").param("limit", String.valueOf(limit)));
+    }
+
+    @Test
+    void ownerListingRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/properties/owner/" + owner.getId())
+                .param("limit", String.valueOf(limit))
+                .with(user(owner)));
+    }
+
+    @Test
+    void indexedSearchRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/search").param("location", CITY).param("limit", String.valueOf(limit)));
+    }
+
+    @Test
+    void databaseSearchRunsConstantStatements() throws Exception {
+        // The index does not hold views, so this sort is answered by the JPQL query
+        assertConstant(limit -> get("/api/search")
+                .param("location", CITY)
+                .param("sortBy", "views")
+                .param("limit", String.valueOf(limit)));
+    }
+
+    @Test
+    void nearbySearchRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/search/nearby")
+                .param("lat", "12.97")
+                .param("lng", "77.59")
+                .param("radius", "50")
+                .param("limit", String.valueOf(limit)));
+    }
+
+    @Test
+    void pendingVerificationListingRunsConstantStatements() throws Exception {
+        assertConstant(limit -> get("/api/admin/properties/pending")
+                .param("limit", String.valueOf(limit))
+                .with(user(admin)));
+    }
+
+    private void assertConstant(IntFunction<RequestBuilder> request) throws Exception {
+        long small = statements(request.apply(SMALL_PAGE), SMALL_PAGE);
+        long large = statements(request.apply(LARGE_PAGE), LARGE_PAGE);
+        assertThat(large).as("statements for a page of %d vs %d", LARGE_PAGE, SMALL_PAGE).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+    }
+
+    private long statements(RequestBuilder request, int expectedRows) throws Exception {
+        return statementCounter.count(() -> mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.properties.length()").value(expectedRows))
+                .andExpect(jsonPath("$.properties[0].owner.id").exists())
+                .andExpect(jsonPath("$.properties[0].images.length()").value(2))
+                .andExpect(jsonPath("$.properties[0].amenities.length()").value(2)));
+    }
+
+    private static Property property(User owner, int i) {
+        Property property = TestData.property(owner, CITY)
+                .title("Listing " + i)
+                .rentAmount(1000d + i)
+                .latitude(12.97 + i * 0.001)
+                .longitude(77.59)
+                .amenities(new ArrayList<>(List.of("wifi", "parking")))
+                .isVerified(false)
+                .views((long) i)
+                .build();
+        return TestData.withImages(property, "/api/images/" + i + "-a.jpg", "/api/images/" + i + "-b.jpg");
+    }
+}
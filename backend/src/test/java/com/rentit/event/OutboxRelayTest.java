@@ -0,0 +1,255 @@
+package com.rentit.event;
+
+import com.rentit.entity.OutboxEvent;
+import com.rentit.entity.Property;
+import com.rentit.entity.PropertyAvailability;
+import com.rentit.entity.User;
+import com.rentit.repository.OutboxEventRepository;
+import com.rentit.repository.PropertyAvailabilityRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.search.PropertyAvailabilityIndex;
+import com.rentit.search.PropertySearchIndex;
+import com.rentit.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the relay against its own database: property changes reach this instance's indexes whichever
+ * instance claimed them, even when they commit out of id order, a broadcast that fails is retried and
+ * then resynced, and the claim poll is not held up by aggregates that are waiting on an earlier event.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rentit-relay;DB_CLOSE_DELAY=-1",
+        "events.relay.enabled=true",
+        "events.relay.batch-size=10",
+        "events.relay.poll-interval-ms=50",
+        "events.relay.max-attempts=3"
+})
+@ActiveProfiles("test")
+class OutboxRelayTest {
+
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(20);
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private PropertyAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private PropertySearchIndex searchIndex;
+
+    @Autowired
+    private PropertyAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FlakyHandler flakyHandler;
+
+    @Test
+    void appliesPropertyChangesClaimedByAnotherInstance() {
+        Property property = propertyRepository.save(TestData.property(owner("relay-owner"), "Claimedelsewhere").build());
+        availabilityRepository.save(PropertyAvailability.builder()
+                .propertyId(property.getId())
+                .startDate(CHECK_IN)
+                .endDate(CHECK_IN.plusDays(3))
+                .build());
+
+        // Another instance claimed and published the event, so it is never pending here
+        outboxEventRepository.save(event(property.getId(), OutboxEvent.Status.PUBLISHED));
+
+        awaitTrue(() -> indexed("Claimedelsewhere", property.getId())
+                && !availabilityIndex.isFree(property.getId(), CHECK_IN, CHECK_IN.plusDays(1)));
+    }
+
+    @Test
+    void appliesEventsThatCommitBelowOnesAlreadyApplied() {
+        User owner = owner("late-owner");
+        Property early = propertyRepository.save(TestData.property(owner, "Committedearly").build());
+        Property late = propertyRepository.save(TestData.property(owner, "Committedlate").build());
+        long base = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM outbox_events", Long.class) + 1000;
+
+        insertWithId(base + 2, early.getId());
+        awaitTrue(() -> indexed("Committedearly", early.getId()));
+
+        // The transaction holding the lower id commits last
+        insertWithId(base + 1, late.getId());
+        awaitTrue(() -> indexed("Committedlate", late.getId()));
+    }
+
+    @Test
+    void retriesABroadcastThatFailed() {
+        long aggregate = 800_001L;
+        int resyncs = flakyHandler.resyncs.get();
+        flakyHandler.failuresLeft.put(aggregate, 2);
+        outboxEventRepository.save(event(aggregate, OutboxEvent.Status.PUBLISHED));
+
+        awaitTrue(() -> flakyHandler.applied.contains(aggregate));
+        assertThat(flakyHandler.failuresLeft).doesNotContainKey(aggregate);
+        assertThat(flakyHandler.resyncs).hasValue(resyncs);
+    }
+
+    @Test
+    void resyncsOnceABroadcastRunsOutOfAttempts() {
+        long aggregate = 800_002L;
+        int resyncs = flakyHandler.resyncs.get();
+        flakyHandler.failuresLeft.put(aggregate, Integer.MAX_VALUE);
+        outboxEventRepository.save(event(aggregate, OutboxEvent.Status.PUBLISHED));
+
+        awaitTrue(() -> flakyHandler.resyncs.get() == resyncs + 1);
+        assertThat(flakyHandler.failuresLeft).containsEntry(aggregate, Integer.MAX_VALUE - 3);
+
+        // Given up on, so it no longer holds back the events behind it
+        outboxEventRepository.save(event(800_003L, OutboxEvent.Status.PUBLISHED));
+        awaitTrue(() -> flakyHandler.applied.contains(800_003L));
+        assertThat(flakyHandler.failuresLeft).containsEntry(aggregate, Integer.MAX_VALUE - 3);
+        assertThat(flakyHandler.resyncs).hasValue(resyncs + 1);
+    }
+
+    @Test
+    void pollsPastAggregatesWaitingOnAnEarlierEvent() {
+        List<Long> waiting = new ArrayList<>();
+        OutboxEvent backingOff = event(900_001L, OutboxEvent.Status.PENDING);
+        backingOff.setAttempts(1);
+        backingOff.setNextAttemptAt(LocalDateTime.now().plusHours(1));
+        waiting.add(outboxEventRepository.save(backingOff).getId());
+        // More queued behind it than fit in one poll
+        for (int i = 0; i < 15; i++) {
+            waiting.add(outboxEventRepository.save(event(900_001L, OutboxEvent.Status.PENDING)).getId());
+        }
+        Long other = outboxEventRepository.save(event(900_002L, OutboxEvent.Status.PENDING)).getId();
+
+        awaitTrue(() -> outboxEventRepository.findById(other).orElseThrow().getStatus() == OutboxEvent.Status.PUBLISHED);
+        assertThat(outboxEventRepository.findAllById(waiting))
+                .allSatisfy(event -> assertThat(event.getStatus()).isEqualTo(OutboxEvent.Status.PENDING));
+    }
+
+    /**
+     * A broadcast handler that fails a set number of times per aggregate before applying it.
+     */
+    static class FlakyHandler implements EventHandler {
+
+        final Map<Long, Integer> failuresLeft = new ConcurrentHashMap<>();
+        final Set<Long> applied = ConcurrentHashMap.newKeySet();
+        final AtomicInteger resyncs = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return "flaky";
+        }
+
+        @Override
+        public Set<OutboxEvent.Type> eventTypes() {
+            return Set.of(OutboxEvent.Type.PROPERTY_CHANGED);
+        }
+
+        @Override
+        public boolean idempotent() {
+            return true;
+        }
+
+        @Override
+        public boolean broadcast() {
+            return true;
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            Integer left = failuresLeft.computeIfPresent(event.getAggregateId(), (id, n) -> n - 1);
+            if (left != null && left >= 0) {
+                if (left == 0) {
+                    failuresLeft.remove(event.getAggregateId());
+                }
+                throw new IllegalStateException("Index busy");
+            }
+            applied.add(event.getAggregateId());
+        }
+
+        @Override
+        public void resync() {
+            resyncs.incrementAndGet();
+        }
+    }
+
+    @TestConfiguration
+    static class FlakyHandlerConfig {
+
+        @Bean
+        FlakyHandler flakyHandler() {
+            return new FlakyHandler();
+        }
+    }
+
+    private boolean indexed(String city, Long propertyId) {
+        return searchIndex.search(city, null, null, null, null, null, null, null, PageRequest.of(0, 10))
+                .map(page -> page.getContent().contains(propertyId))
+                .orElse(false);
+    }
+
+    private void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waiting for the relay").isLessThan(deadline);
+            outboxRelay.wakeUp();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void insertWithId(long id, Long propertyId) {
+        jdbcTemplate.update("INSERT INTO outbox_events (id, event_key, event_type, aggregate_type, aggregate_id, payload, status, attempts, created_at) " +
+                        "VALUES (?, ?, 'PROPERTY_CHANGED', 'PROPERTY', ?, '{}', 'PUBLISHED', 0, ?)",
+                id, UUID.randomUUID().toString(), propertyId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private static OutboxEvent event(Long propertyId, OutboxEvent.Status status) {
+        return OutboxEvent.builder()
+                .eventKey(UUID.randomUUID().toString())
+                .eventType(OutboxEvent.Type.PROPERTY_CHANGED)
+                .aggregateType("PROPERTY")
+                .aggregateId(propertyId)
+                .payload("{}")
+                .status(status)
+                .build();
+    }
+
+    private User owner(String name) {
+        return userRepository.save(TestData.user(name, User.Role.OWNER));
+    }
+}
@@ -0,0 +1,39 @@
+package com.rentit.notification;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The log channel must not write one-time tokens to the application log unless told to.
+ */
+@ExtendWith(OutputCaptureExtension.class)
+class LogNotificationChannelTest {
+
+    private static final String TOKEN = "9b2d7c44-reset-token";
+
+    private final Notification reset = new Notification("user@example.com", "Reset your password",
+            "Open http://localhost/reset?token=" + TOKEN, List.of(TOKEN));
+
+    @Test
+    void masksSecrets(CapturedOutput output) {
+        new LogNotificationChannel().send("user@example.com", List.of(reset));
+
+        assertThat(output).contains("token=[redacted]").doesNotContain(TOKEN);
+    }
+
+    @Test
+    void revealsSecretsWhenAskedTo(CapturedOutput output) {
+        LogNotificationChannel channel = new LogNotificationChannel();
+        ReflectionTestUtils.setField(channel, "revealSecrets", true);
+        channel.send("user@example.com", List.of(reset));
+
+        assertThat(output).contains("token=" + TOKEN);
+    }
+}
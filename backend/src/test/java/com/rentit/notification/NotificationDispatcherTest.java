@@ -0,0 +1,88 @@
+package com.rentit.notification;
+
+import com.rentit.entity.NotificationDeadLetter;
+import com.rentit.repository.NotificationDeadLetterRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Undeliverable notifications are dead-lettered without their secrets, and those cannot be resent.
+ */
+class NotificationDispatcherTest {
+
+    private static final String TOKEN = "3f1c9e0a-reset-token";
+
+    private final NotificationChannel channel = mock(NotificationChannel.class);
+    private final NotificationDeadLetterRepository deadLetterRepository = mock(NotificationDeadLetterRepository.class);
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(channel, deadLetterRepository);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 10);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "lingerMs", 200L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 1);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deadLettersMaskSecrets() throws Exception {
+        doThrow(new IllegalStateException("mail server down")).when(channel).send(any(), anyList());
+
+        assertThat(dispatcher.enqueueAll(List.of(
+                new Notification("user@example.com", "Reset your password", "Open http://localhost/reset?token=" + TOKEN, List.of(TOKEN)),
+                new Notification("user@example.com", "Booking approved", "Your booking was approved.")))).isTrue();
+
+        ArgumentCaptor<List<NotificationDeadLetter>> stored = ArgumentCaptor.forClass(List.class);
+        verify(deadLetterRepository, timeout(5000)).saveAll(stored.capture());
+        assertThat(stored.getValue()).hasSize(2);
+        NotificationDeadLetter reset = stored.getValue().get(0);
+        assertThat(reset.getBody()).doesNotContain(TOKEN).contains("token=[redacted]");
+        assertThat(reset.getRedacted()).isTrue();
+        NotificationDeadLetter approved = stored.getValue().get(1);
+        assertThat(approved.getBody()).isEqualTo("Your booking was approved.");
+        assertThat(approved.getRedacted()).isFalse();
+    }
+
+    @Test
+    void refusesToResendARedactedDeadLetter() {
+        NotificationDeadLetter deadLetter = NotificationDeadLetter.builder()
+                .id(7L)
+                .recipient("user@example.com")
+                .subject("Reset your password")
+                .body("Open http://localhost/reset?token=[redacted]")
+                .redacted(true)
+                .attempts(5)
+                .build();
+        when(deadLetterRepository.findById(7L)).thenReturn(Optional.of(deadLetter));
+
+        assertThatThrownBy(() -> dispatcher.resendDeadLetter(7L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("cannot be resent");
+        verify(deadLetterRepository, never()).delete(any());
+    }
+}
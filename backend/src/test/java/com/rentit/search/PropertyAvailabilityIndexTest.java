@@ -0,0 +1,84 @@
+package com.rentit.search;
+
+import com.rentit.entity.PropertyAvailability;
+import com.rentit.repository.PropertyAvailabilityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A rebuild must not lose a replacement that commits while it is loading, and readers keep the previous
+ * calendar until the new one is swapped in.
+ */
+class PropertyAvailabilityIndexTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(10);
+
+    private final PropertyAvailabilityRepository repository = mock(PropertyAvailabilityRepository.class);
+    private PropertyAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PropertyAvailabilityIndex(repository, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void replacementsDuringARebuildSurviveTheSwap() {
+        PropertyAvailability first = range(1L, 0, 3);
+        PropertyAvailability stale = range(2L, 0, 3);
+        when(repository.streamEndingAfter(any())).thenReturn(List.of(first, stale).stream());
+        index.rebuild();
+        assertThat(index.isFree(1L, DAY, DAY.plusDays(1))).isFalse();
+
+        // The second rebuild reads property 2's old range, but its booking is cancelled (and property 3 booked)
+        // after the read starts; those replacements commit on another thread half way through the load
+        when(repository.streamEndingAfter(any())).thenReturn(List.of(first, stale).stream().peek(row -> {
+            if (row == first) {
+                CompletableFuture.runAsync(() -> {
+                    index.replace(2L, List.of());
+                    index.replace(3L, List.of(range(3L, 5, 6)));
+                }).join();
+                // Readers still see a complete calendar while the rebuild is loading
+                assertThat(index.isReady()).isTrue();
+                assertThat(index.isFree(1L, DAY, DAY.plusDays(1))).isFalse();
+            }
+        }));
+        index.rebuild();
+
+        assertThat(index.isFree(1L, DAY, DAY.plusDays(1))).isFalse();
+        assertThat(index.isFree(2L, DAY, DAY.plusDays(1))).isTrue();
+        assertThat(index.isFree(3L, DAY.plusDays(5), DAY.plusDays(6))).isFalse();
+    }
+
+    @Test
+    void replacementsAfterARebuildAreNotReplayedIntoTheNext() {
+        when(repository.streamEndingAfter(any())).thenReturn(List.of(range(1L, 0, 3)).stream());
+        index.rebuild();
+        index.replace(1L, List.of());
+
+        when(repository.streamEndingAfter(any())).thenReturn(List.of(range(1L, 7, 8)).stream());
+        index.rebuild();
+
+        assertThat(index.isFree(1L, DAY, DAY.plusDays(1))).isTrue();
+        assertThat(index.isFree(1L, DAY.plusDays(7), DAY.plusDays(8))).isFalse();
+    }
+
+    private static PropertyAvailability range(Long propertyId, int fromDay, int toDay) {
+        return PropertyAvailability.builder()
+                .propertyId(propertyId)
+                .startDate(DAY.plusDays(fromDay))
+                .endDate(DAY.plusDays(toDay))
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.rentit.search;
+
+import com.rentit.entity.Property;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the bounded, ring-ordered radius search against a brute-force ranking of every point.
+ */
+class PropertyGeoIndexTest {
+
+    private final Random random = new Random(42);
+    private final List<double[]> points = new ArrayList<>();
+    private PropertyGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PropertyGeoIndex(null);
+        ReflectionTestUtils.setField(index, "cellDegrees", 0.1);
+        ReflectionTestUtils.setField(index, "ready", true);
+        // A dense city plus scattered points, some near the antimeridian and the poles
+        for (long id = 1; id <= 3000; id++) {
+            double lat;
+            double lng;
+            if (id <= 2000) {
+                lat = 12.9 + random.nextGaussian() * 0.3;
+                lng = 77.6 + random.nextGaussian() * 0.3;
+            } else {
+                lat = random.nextDouble() * 178 - 89;
+                lng = random.nextDouble() * 360 - 180;
+            }
+            points.add(new double[]{id, lat, lng});
+            index.index(Property.builder().id(id).latitude(lat).longitude(lng).build());
+        }
+    }
+
+    @Test
+    void matchesBruteForceRanking() {
+        double[][] queries = {
+                {12.9, 77.6, 5}, {12.9, 77.6, 50}, {12.9, 77.6, 400}, {13.5, 78.0, 20},
+                {0, 179.95, 300}, {88.5, 10, 500}, {-45, -120, 2000}, {12.9, 77.6, 20000}
+        };
+        for (double[] query : queries) {
+            for (int page = 0; page < 3; page++) {
+                for (int limit : new int[]{1, 10, 50}) {
+                    assertPage(query[0], query[1], query[2], page, limit);
+                }
+            }
+        }
+    }
+
+    @Test
+    void keepsTotalWhenRankingStopsEarly() {
+        Page<Long> page = index.nearby(12.9, 77.6, 100, PageRequest.of(0, 1));
+        assertThat(page.getTotalElements()).isEqualTo(expected(12.9, 77.6, 100).size());
+        assertThat(page.getContent()).hasSize(1);
+    }
+
+    private void assertPage(double lat, double lng, double radiusKm, int page, int limit) {
+        List<Long> expected = expected(lat, lng, radiusKm);
+        Page<Long> actual = index.nearby(lat, lng, radiusKm, PageRequest.of(page, limit));
+        int from = Math.min(page * limit, expected.size());
+        int to = Math.min(from + limit, expected.size());
+        assertThat(actual.getContent())
+                .as("page %d of %d around %s,%s within %s km", page, limit, lat, lng, radiusKm)
+                .isEqualTo(expected.subList(from, to));
+        assertThat(actual.getTotalElements()).isEqualTo(expected.size());
+    }
+
+    private List<Long> expected(double lat, double lng, double radiusKm) {
+        return points.stream()
+                .filter(point -> PropertyGeoIndex.haversineKm(lat, lng, point[1], point[2]) <= radiusKm)
+                .sorted(Comparator.<double[]>comparingDouble(point -> PropertyGeoIndex.haversineKm(lat, lng, point[1], point[2]))
+                        .thenComparingDouble(point -> point[0]))
+                .map(point -> (long) point[0])
+                .toList();
+    }
+}
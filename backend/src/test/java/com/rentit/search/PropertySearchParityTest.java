@@ -0,0 +1,92 @@
+package com.rentit.search;
+
+import com.rentit.dto.PropertyDTO;
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.service.PropertyService;
+import com.rentit.support.TestData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The in-memory index and the database fallback must agree on which properties a search matches;
+ * sorting on views forces the fallback, since the index does not hold that column.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PropertySearchParityTest {
+
+    @Autowired
+    private PropertyService propertyService;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertySearchIndex searchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void seed() {
+        User owner = userRepository.save(TestData.user("parity-owner", User.Role.OWNER));
+        save(owner, "Pune", "Maharashtra", "411001");
+        save(owner, "Mumbai", "Maharashtra", "400001");
+        save(owner, "New York", "New York", "10001");
+        save(owner, "Newark", "New Jersey", "07102");
+        save(owner, "Yorkton", "Saskatchewan", "S3N 0A1");
+        // Replaced in place, so the old tokens must stop matching and the slot is reused
+        Property moved = save(owner, "Nagpur", "Maharashtra", "440001");
+        moved.setCity("Nashik");
+        searchIndex.index(propertyRepository.save(moved));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"pune", "Maharashtra", "maha", "4", "411", "new york", "ork", "NEW", "york, new",
+            "s3n", "nagpur", "nashik", "pune mumbai", "zzz", "!!"})
+    void indexAndDatabaseMatchTheSameProperties(String location) {
+        Set<Long> indexed = search(location, "createdAt");
+        Set<Long> database = search(location, "views");
+        assertThat(indexed).as("index vs database for '%s'", location).isEqualTo(database);
+    }
+
+    private Set<Long> search(String location, String sortBy) {
+        // Mapping touches lazy collections, which the web layer's open session normally covers
+        return new TransactionTemplate(transactionManager).execute(status -> propertyService
+                .searchProperties(location, null, null, null, null, null, null, null,
+                        PageRequest.of(0, 1000, PropertySortKey.toSort(sortBy, "desc")))
+                .getContent().stream()
+                .map(PropertyDTO::getId)
+                .collect(Collectors.toSet()));
+    }
+
+    private Property save(User owner, String city, String state, String pincode) {
+        Property property = propertyRepository.save(TestData.property(owner, city)
+                .propertyType(Property.PropertyType.HOUSE)
+                .state(state)
+                .pincode(pincode)
+                .build());
+        searchIndex.index(property);
+        return property;
+    }
+}
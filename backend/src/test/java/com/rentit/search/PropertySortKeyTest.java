@@ -0,0 +1,215 @@
+package com.rentit.search;
+
+import com.rentit.dto.PropertyDTO;
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.service.PropertyService;
+import com.rentit.support.TestData;
+import com.rentit.util.PageRequests;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Every public sort key must sort correctly on both search paths and be backed by an index the
+ * database can read in order; anything outside the whitelist must be rejected, and paging far past the
+ * end is clamped rather than sized into the index's heap.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PropertySortKeyTest {
+
+    private static final String CITY = "Sortville";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PropertyService propertyService;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertySearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void seed() {
+        User owner = userRepository.save(TestData.user("sort-owner", User.Role.OWNER));
+        for (int i = 0; i < 8; i++) {
+            Property property = TestData.property(owner, CITY)
+                    .title("Sorted " + i)
+                    .propertyType(Property.PropertyType.STUDIO)
+                    .rentAmount(500d + (i * 37) % 8 * 100)
+                    .bedrooms(1 + i % 3)
+                    .views((long) (i * 5) % 7)
+                    .build();
+            property.getRating().add(1 + i % 5);
+            searchIndex.index(propertyRepository.save(property));
+        }
+    }
+
+    static Stream<Arguments> keysAndOrders() {
+        return Arrays.stream(PropertySortKey.values())
+                .flatMap(key -> Stream.of(Arguments.of(key, "asc"), Arguments.of(key, "desc")));
+    }
+
+    @ParameterizedTest
+    @MethodSource("keysAndOrders")
+    void searchSortsOnEveryKey(PropertySortKey key, String order) {
+        PageRequest pageable = PageRequest.of(0, 100, PropertySortKey.toSort(key.getPublicName(), order));
+        List<PropertyDTO> viaService = inTransaction(() -> propertyService.searchProperties(
+                CITY, null, null, null, null, null, null, null, pageable).getContent());
+        List<PropertyDTO> viaDatabase = inTransaction(() -> propertyRepository.findAll(
+                PropertySpecifications.search(CITY, null, null, null, null, null, null, null), pageable)
+                .map(property -> {
+                    PropertyDTO dto = new PropertyDTO();
+                    dto.setId(property.getId());
+                    dto.setRentAmount(property.getRentAmount());
+                    dto.setBedrooms(property.getBedrooms());
+                    dto.setViews(property.getViews());
+                    dto.setAverageRating(property.getRating().getRatingAverage());
+                    dto.setCreatedAt(property.getCreatedAt());
+                    return dto;
+                })
+                .getContent());
+
+        Comparator<PropertyDTO> expected = comparator(key, order);
+        assertThat(viaService).hasSize(8).isSortedAccordingTo(expected);
+        assertThat(viaDatabase).hasSize(8).isSortedAccordingTo(expected);
+        assertThat(viaService).extracting(PropertyDTO::getId)
+                .containsExactlyElementsOf(viaDatabase.stream().map(PropertyDTO::getId).toList());
+    }
+
+    @ParameterizedTest
+    @EnumSource(PropertySortKey.class)
+    void everyKeyIsReadInIndexOrder(PropertySortKey key) {
+        String column = columnOf(key.getPath());
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id FROM properties ORDER BY " + column + " FETCH FIRST 10 ROWS ONLY", String.class);
+        assertThat(plan).as("plan for %s", key).contains("index sorted").doesNotContain("tableScan");
+        assertThat(declaredIndexes()).as("index leading with %s", key)
+                .anyMatch(index -> index.columnList().split(",")[0].trim().equals(lastSegment(key.getPath())));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"description", "title", "owner.password", "rentAmount;drop", "RENTAMOUNT", "rating.ratingAverage"})
+    void unknownKeysAreRejected(String sortBy) throws Exception {
+        assertThatThrownBy(() -> PropertySortKey.from(sortBy)).hasMessageContaining("Unsupported sortBy");
+        mockMvc.perform(get("/api/search").param("sortBy", sortBy))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("Allowed values")));
+        mockMvc.perform(get("/api/properties").param("sortBy", sortBy))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void hugePagesAreClampedAndAnswered() throws Exception {
+        String huge = String.valueOf(Integer.MAX_VALUE);
+        mockMvc.perform(get("/api/search").param("location", CITY).param("page", huge).param("limit", huge))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.properties").isEmpty())
+                .andExpect(jsonPath("$.currentPage").value(PageRequests.MAX_PAGE))
+                .andExpect(jsonPath("$.totalProperties").value(8));
+        mockMvc.perform(get("/api/properties").param("page", huge).param("limit", huge))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.properties").isEmpty())
+                .andExpect(jsonPath("$.currentPage").value(PageRequests.MAX_PAGE));
+        mockMvc.perform(get("/api/search").param("location", CITY).param("page", "-3").param("limit", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.currentPage").value(0))
+                .andExpect(jsonPath("$.properties.length()").value(1));
+
+        // Callers inside the application are not clamped, so the index must cope on its own
+        assertThat(searchIndex.search(CITY, null, null, null, null, null, null, null,
+                PageRequest.of(Integer.MAX_VALUE - 1, Integer.MAX_VALUE)))
+                .hasValueSatisfying(page -> {
+                    assertThat(page.getContent()).isEmpty();
+                    assertThat(page.getTotalElements()).isEqualTo(8);
+                });
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        // Mapping touches lazy collections, which the web layer's open session normally covers
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private String columnOf(String path) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(Property.class);
+        return persister.getPropertyColumnNames(path)[0];
+    }
+
+    private static List<Index> declaredIndexes() {
+        return List.of(Property.class.getAnnotation(Table.class).indexes());
+    }
+
+    private static String lastSegment(String path) {
+        return path.substring(path.lastIndexOf('.') + 1);
+    }
+
+    private static Comparator<PropertyDTO> comparator(PropertySortKey key, String order) {
+        Function<PropertyDTO, Comparable> value = switch (key) {
+            case CREATED_AT -> PropertyDTO::getCreatedAt;
+            case RENT_AMOUNT -> PropertyDTO::getRentAmount;
+            case BEDROOMS -> PropertyDTO::getBedrooms;
+            case VIEWS -> PropertyDTO::getViews;
+            case AVERAGE_RATING -> PropertyDTO::getAverageRating;
+        };
+        @SuppressWarnings("unchecked")
+        Comparator<PropertyDTO> byKey = Comparator.comparing(dto -> (Comparable<Object>) value.apply(dto));
+        Comparator<PropertyDTO> byId = Comparator.comparing(PropertyDTO::getId);
+        return order.equals("asc") ? byKey.thenComparing(byId) : byKey.reversed().thenComparing(byId.reversed());
+    }
+}
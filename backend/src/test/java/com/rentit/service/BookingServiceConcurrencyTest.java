@@ -0,0 +1,177 @@
+package com.rentit.service;
+
+import com.rentit.entity.Booking;
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.BookingRepository;
+import com.rentit.repository.PropertyAvailabilityRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.search.PropertyAvailabilityIndex;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hundreds of threads approve overlapping requests for one property while its other approved stays are
+ * cancelled: exactly one overlapping approval may win, and every cancellation must go through.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BookingServiceConcurrencyTest {
+
+    private static final int CONTENDERS = 100;
+    private static final int APPROVALS_PER_CONTENDER = 2;
+    private static final int STAYS = 100;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PropertyAvailabilityRepository availabilityRepository;
+
+    @Autowired
+    private PropertyAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void exactlyOneOverlappingApprovalWins() throws Exception {
+        User ownerUser = userRepository.save(TestData.user("race-owner", User.Role.OWNER));
+        User tenantUser = userRepository.save(TestData.user("race-tenant", User.Role.TENANT));
+        AuthenticatedUser owner = new AuthenticatedUser(ownerUser);
+        AuthenticatedUser tenant = new AuthenticatedUser(tenantUser);
+        Property property = propertyRepository.save(TestData.property(ownerUser, "Racecourse").title("Contested").build());
+
+        LocalDate today = LocalDate.now();
+        List<Long> stays = new ArrayList<>();
+        for (int i = 0; i < STAYS; i++) {
+            LocalDate checkIn = today.plusDays(100 + 3L * i);
+            Long id = bookingRepository.save(TestData.pendingBooking(property, tenantUser, checkIn, checkIn.plusDays(2))).getId();
+            bookingService.approveBooking(id, owner);
+            stays.add(id);
+        }
+        LocalDate contestedIn = today.plusDays(30);
+        LocalDate contestedOut = today.plusDays(33);
+        List<Long> contenders = new ArrayList<>();
+        for (int i = 0; i < CONTENDERS; i++) {
+            contenders.add(bookingRepository.save(TestData.pendingBooking(property, tenantUser, contestedIn, contestedOut)).getId());
+        }
+
+        List<Runnable> tasks = new ArrayList<>();
+        AtomicInteger approvals = new AtomicInteger();
+        AtomicInteger cancellations = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        for (Long id : contenders) {
+            for (int i = 0; i < APPROVALS_PER_CONTENDER; i++) {
+                tasks.add(() -> {
+                    try {
+                        bookingService.approveBooking(id, owner);
+                        approvals.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        if (!isExpectedRejection(e)) {
+                            unexpected.add(e);
+                        }
+                    }
+                });
+            }
+        }
+        for (Long id : stays) {
+            tasks.add(() -> {
+                bookingService.cancelBooking(id, tenant);
+                cancellations.incrementAndGet();
+            });
+        }
+        Collections.shuffle(tasks);
+
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (Runnable task : tasks) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        task.run();
+                    } catch (Throwable e) {
+                        unexpected.add(e);
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        }
+
+        assertThat(unexpected).isEmpty();
+        assertThat(approvals).hasValue(1);
+        assertThat(cancellations).hasValue(STAYS);
+
+        assertThat(bookingRepository.findAllById(contenders))
+                .filteredOn(booking -> booking.getBookingStatus() == Booking.BookingStatus.APPROVED)
+                .hasSize(1);
+        assertThat(bookingRepository.findAllById(stays))
+                .allSatisfy(booking -> assertThat(booking.getBookingStatus()).isEqualTo(Booking.BookingStatus.CANCELLED));
+        assertThat(propertyRepository.findById(property.getId()).orElseThrow().getAvailabilityStatus())
+                .isEqualTo(Property.AvailabilityStatus.RENTED);
+
+        // Only the winner's dates are still taken, in the table and in the index
+        assertThat(availabilityRepository.findAll())
+                .filteredOn(range -> range.getPropertyId().equals(property.getId()))
+                .singleElement()
+                .satisfies(range -> {
+                    assertThat(range.getStartDate()).isEqualTo(contestedIn);
+                    assertThat(range.getEndDate()).isEqualTo(contestedOut);
+                });
+        assertThat(availabilityIndex.isFree(property.getId(), contestedIn, contestedOut)).isFalse();
+        assertThat(availabilityIndex.isFree(property.getId(), today.plusDays(100), today.plusDays(102))).isTrue();
+    }
+
+    @Test
+    void refusesToRetryInsideAnOuterTransaction() {
+        User ownerUser = userRepository.save(TestData.user("nested-owner", User.Role.OWNER));
+        User tenantUser = userRepository.save(TestData.user("nested-tenant", User.Role.TENANT));
+        Property property = propertyRepository.save(TestData.property(ownerUser, "Racecourse").title("Nested").build());
+        Long id = bookingRepository.save(TestData.pendingBooking(property, tenantUser, LocalDate.now().plusDays(5), LocalDate.now().plusDays(7))).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                assertThatThrownBy(() -> bookingService.approveBooking(id, new AuthenticatedUser(ownerUser)))
+                        .isInstanceOf(IllegalStateException.class));
+        assertThat(bookingRepository.findById(id).orElseThrow().getBookingStatus()).isEqualTo(Booking.BookingStatus.PENDING);
+    }
+
+    private static boolean isExpectedRejection(RuntimeException e) {
+        String message = String.valueOf(e.getMessage());
+        return message.contains("already booked for these dates") || message.contains("not in pending status");
+    }
+}
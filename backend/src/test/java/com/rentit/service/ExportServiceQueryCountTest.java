@@ -0,0 +1,148 @@
+package com.rentit.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rentit.entity.Property;
+import com.rentit.entity.User;
+import com.rentit.repository.BookingRepository;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.support.StatementCounter;
+import com.rentit.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports fetch each chunk's collections with one query per collection instead of one per row. The
+ * chunk size is set low, on a database of its own, so the rows span several chunks and a partial last one.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rentit-export;DB_CLOSE_DELAY=-1",
+        "exports.chunk-size=" + ExportServiceQueryCountTest.CHUNK_SIZE
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ExportServiceQueryCountTest {
+
+    static final int CHUNK_SIZE = 7;
+    private static final int ROWS = 30;
+    private static final String CITY = "Exportpur";
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementCounter statementCounter;
+    private User owner;
+    private final Map<Long, Integer> seeded = new HashMap<>();
+
+    @BeforeAll
+    void seed() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+        owner = userRepository.save(TestData.user("export-owner", User.Role.OWNER));
+        User tenant = userRepository.save(TestData.user("export-tenant", User.Role.TENANT));
+        for (int i = 0; i < ROWS; i++) {
+            Property property = propertyRepository.save(exported(CITY, i));
+            seeded.put(property.getId(), i);
+            bookingRepository.save(TestData.pendingBooking(property, tenant,
+                    LocalDate.now().plusDays(10 + i), LocalDate.now().plusDays(12 + i)));
+        }
+    }
+
+    @Test
+    void propertyExportFetchesCollectionsPerChunk() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long statements = statementCounter.count(() -> exportService.export("properties").writeTo(out));
+
+        List<JsonNode> rows = rows(out);
+        assertThat(chunks(rows)).isGreaterThan(4);
+        assertThat(statements).isEqualTo(1 + 2 * chunks(rows));
+        // Every row exactly once, each with its own collections, on both sides of every chunk boundary
+        assertThat(rows).filteredOn(row -> row.get("city").asText().equals(CITY))
+                .hasSize(ROWS)
+                .allSatisfy(row -> {
+                    int i = seeded.get(row.get("id").asLong());
+                    assertThat(row.get("images")).hasSize(1);
+                    assertThat(row.get("images").get(0).get("url").asText()).isEqualTo("/api/images/export-" + i + ".jpg");
+                    assertThat(row.get("amenities")).hasSize(2);
+                })
+                .extracting(row -> row.get("id").asLong())
+                .containsExactlyInAnyOrderElementsOf(seeded.keySet());
+
+        // One more chunk of rows costs exactly the two collection queries of one chunk
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            propertyRepository.save(exported("Exportpur Annex", i));
+        }
+        ByteArrayOutputStream more = new ByteArrayOutputStream();
+        long moreStatements = statementCounter.count(() -> exportService.export("properties").writeTo(more));
+        assertThat(rows(more)).hasSize(rows.size() + CHUNK_SIZE);
+        assertThat(moreStatements - statements).isEqualTo(2);
+    }
+
+    @Test
+    void bookingExportFetchesImagesPerChunk() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long statements = statementCounter.count(() -> exportService.export("bookings").writeTo(out));
+
+        List<JsonNode> rows = rows(out);
+        assertThat(chunks(rows)).isGreaterThan(4);
+        assertThat(statements).isEqualTo(1 + chunks(rows));
+        assertThat(rows).filteredOn(row -> row.get("propertyCity").asText().equals(CITY))
+                .hasSize(ROWS)
+                .allSatisfy(row -> assertThat(row.get("primaryImageUrl").asText())
+                        .isEqualTo("/api/images/export-" + seeded.get(row.get("propertyId").asLong()) + ".jpg"))
+                .extracting(row -> row.get("propertyId").asLong())
+                .containsExactlyInAnyOrderElementsOf(seeded.keySet());
+    }
+
+    private Property exported(String city, int i) {
+        Property property = TestData.property(owner, city)
+                .title("Exported " + i)
+                .propertyType(Property.PropertyType.VILLA)
+                .amenities(new ArrayList<>(List.of("pool", "garden")))
+                .build();
+        return TestData.withImages(property, "/api/images/export-" + i + ".jpg");
+    }
+
+    private static long chunks(List<JsonNode> rows) {
+        return (rows.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    private List<JsonNode> rows(ByteArrayOutputStream out) throws Exception {
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : out.toString().split("\n")) {
+            if (!line.isBlank()) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        return rows;
+    }
+}
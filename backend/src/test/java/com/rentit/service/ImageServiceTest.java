@@ -0,0 +1,90 @@
+package com.rentit.service;
+
+import com.rentit.entity.User;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.storage.ImageStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Uploads are checked against the pixel budget from their header, and variants decode with subsampling.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ImageServiceTest {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    private final AuthenticatedUser uploader = new AuthenticatedUser(User.builder()
+            .id(1L)
+            .username("image-uploader")
+            .email("image-uploader@example.com")
+            .password("{noop}password")
+            .role(User.Role.OWNER)
+            .build());
+
+    @Test
+    void rejectsImagesDeclaringTooManyPixels() throws Exception {
+        // A few hundred bytes on the wire that would decode to 1.6 GB of pixels
+        byte[] bomb = withDimensions(png(16, 16), 20_000, 20_000);
+
+        assertThatThrownBy(() -> imageService.storeStream(new ByteArrayInputStream(bomb), "bomb.png", uploader))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("pixels");
+    }
+
+    @Test
+    void rendersVariantsFromASubsampledDecode() throws Exception {
+        Map<String, String> stored = imageService.storeStream(
+                new ByteArrayInputStream(png(5000, 20)), "wide.png", uploader);
+        String filename = stored.get("filename");
+
+        ImageService.StoredImage full = imageService.locate(filename, ImageService.Variant.FULL);
+        for (int i = 0; i < 100 && !full.immutable(); i++) {
+            Thread.sleep(100);
+            full = imageService.locate(filename, ImageService.Variant.FULL);
+        }
+        assertThat(full.immutable()).as("full variant rendered").isTrue();
+        try (InputStream in = imageStore.open(full.key())) {
+            BufferedImage variant = ImageIO.read(in);
+            assertThat(variant.getWidth()).isEqualTo(2048);
+        }
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Rewrites the IHDR chunk's width and height (and its CRC) without touching the pixel data.
+     */
+    private static byte[] withDimensions(byte[] png, int width, int height) {
+        ByteBuffer buffer = ByteBuffer.wrap(png);
+        buffer.putInt(16, width);
+        buffer.putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(png, 12, 17);
+        buffer.putInt(29, (int) crc.getValue());
+        return png;
+    }
+}
@@ -0,0 +1,96 @@
+package com.rentit.service;
+
+import com.rentit.entity.Property;
+import com.rentit.entity.PropertyImage;
+import com.rentit.entity.RatingSummary;
+import com.rentit.entity.User;
+import com.rentit.repository.PropertyRepository;
+import com.rentit.repository.UserRepository;
+import com.rentit.security.AuthenticatedUser;
+import com.rentit.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Imported rows load back through JPA like properties created through the API, with every mapped column set.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PropertyImportServiceTest {
+
+    private static final String ROW = "{\"title\":\"Imported flat\",\"description\":\"A flat brought in by the bulk import\","
+            + "\"propertyType\":\"APARTMENT\",\"rentAmount\":1500,\"deposit\":3000,\"address\":\"1 Import Lane\","
+            + "\"city\":\"Importnagar\",\"state\":\"Goa\",\"pincode\":\"403001\",\"latitude\":15.49,\"longitude\":73.82,"
+            + "\"bedrooms\":2,\"bathrooms\":1,\"areaSqft\":850,\"amenities\":[\"wifi\",\"parking\"],"
+            + "\"images\":[{\"url\":\"/api/images/a.jpg\",\"isPrimary\":true},{\"url\":\"/api/images/b.jpg\"}]}";
+
+    @Autowired
+    private PropertyImportService importService;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void importedRowsRoundTripThroughTheMapping() {
+        User owner = userRepository.save(TestData.user("import-owner", User.Role.OWNER));
+
+        Map<String, Object> result = importService.importProperties(
+                new ByteArrayInputStream((ROW + "\n{\"title\":\"\"}\n").getBytes(StandardCharsets.UTF_8)),
+                new AuthenticatedUser(owner));
+        assertThat(result).containsEntry("imported", 1L).containsEntry("failed", 1L);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            List<Property> imported = propertyRepository
+                    .findByOwnerIdAndDeletedAtIsNull(owner.getId(), PageRequest.of(0, 10)).getContent();
+            assertThat(imported).hasSize(1);
+            Property property = imported.get(0);
+
+            assertThat(property.getOwner().getId()).isEqualTo(owner.getId());
+            assertThat(property.getTitle()).isEqualTo("Imported flat");
+            assertThat(property.getPropertyType()).isEqualTo(Property.PropertyType.APARTMENT);
+            assertThat(property.getLatitude()).isEqualTo(15.49);
+            assertThat(property.getAreaSqft()).isEqualTo(850.0);
+            assertThat(property.getAvailabilityStatus()).isEqualTo(Property.AvailabilityStatus.DRAFT);
+            assertThat(property.getIsVerified()).isFalse();
+            assertThat(property.getViews()).isZero();
+            assertThat(property.getVersion()).isZero();
+            assertThat(property.getDeletedAt()).isNull();
+            assertThat(property.getCreatedAt()).isNotNull().isEqualTo(property.getUpdatedAt());
+            assertThat(property.getRating()).usingRecursiveComparison().isEqualTo(new RatingSummary());
+            assertThat(property.getAmenities()).containsExactlyInAnyOrder("wifi", "parking");
+            assertThat(property.getImages())
+                    .extracting(PropertyImage::getUrl, PropertyImage::getIsPrimary)
+                    .containsExactlyInAnyOrder(
+                            tuple("/api/images/a.jpg", true),
+                            tuple("/api/images/b.jpg", false));
+            assertThat(property.getImages()).allSatisfy(image -> assertThat(image.getCreatedAt()).isNotNull());
+
+            property.setTitle("Edited after import");
+        });
+
+        // The imported version takes part in optimistic locking like any other
+        transaction.executeWithoutResult(status -> assertThat(propertyRepository
+                .findByOwnerIdAndDeletedAtIsNull(owner.getId(), PageRequest.of(0, 10)).getContent().get(0).getVersion())
+                .isEqualTo(1L));
+    }
+}
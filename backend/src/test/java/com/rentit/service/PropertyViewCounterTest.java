@@ -0,0 +1,92 @@
+package com.rentit.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Views recorded while flushes run back to back, with properties going idle and being dropped from the
+ * map all the time, must all reach the database exactly once.
+ */
+class PropertyViewCounterTest {
+
+    private static final int THREADS = 8;
+    private static final int VIEWS_PER_THREAD = 20_000;
+    private static final long PROPERTIES = 16;
+
+    @Test
+    void noViewIsLostOrCountedTwiceWhileFlushing() throws Exception {
+        Map<Long, LongAdder> flushed = new ConcurrentHashMap<>();
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            for (Object[] row : batch) {
+                flushed.computeIfAbsent((Long) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+            return new int[batch.size()];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        PropertyViewCounter counter = new PropertyViewCounter(jdbcTemplate);
+
+        Map<Long, LongAdder> recorded = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean viewing = new AtomicBoolean(true);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                start.await();
+                while (viewing.get()) {
+                    counter.flush();
+                }
+                return null;
+            });
+            Future<?>[] viewers = new Future<?>[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                viewers[t] = executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < VIEWS_PER_THREAD; i++) {
+                        long id = random.nextLong(PROPERTIES);
+                        counter.increment(id);
+                        recorded.computeIfAbsent(id, key -> new LongAdder()).increment();
+                        if (random.nextInt(64) == 0) {
+                            // Leave gaps so properties go idle between flushes and get dropped
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> viewer : viewers) {
+                viewer.get(1, TimeUnit.MINUTES);
+            }
+            viewing.set(false);
+            flusher.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+        counter.flush();
+
+        assertThat(counter.pendingTotal()).isZero();
+        assertThat(flushed.keySet()).isEqualTo(recorded.keySet());
+        recorded.forEach((id, views) ->
+                assertThat(flushed.get(id).sum()).as("views of property %d", id).isEqualTo(views.sum()));
+    }
+}
@@ -0,0 +1,125 @@
+package com.rentit.storage;
+
+import com.rentit.support.FakeS3Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Multipart uploads against an in-process S3 fake: parts are streamed from their file ranges, a retried part
+ * resends the same bytes, and a failed upload is aborted.
+ */
+class S3ImageStoreTest {
+
+    private static final String BUCKET = "rentit-test";
+    private static final int PART_SIZE = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private FakeS3Server s3;
+    private S3ImageStore store;
+
+    @BeforeEach
+    void start() throws IOException {
+        s3 = new FakeS3Server();
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test"));
+        S3Configuration pathStyle = S3Configuration.builder().pathStyleAccessEnabled(true).build();
+        store = new S3ImageStore(
+                S3Client.builder()
+                        .region(Region.US_EAST_1)
+                        .credentialsProvider(credentials)
+                        .serviceConfiguration(pathStyle)
+                        .endpointOverride(s3.endpoint())
+                        .build(),
+                S3Presigner.builder()
+                        .region(Region.US_EAST_1)
+                        .credentialsProvider(credentials)
+                        .serviceConfiguration(pathStyle)
+                        .endpointOverride(s3.endpoint())
+                        .build(),
+                BUCKET, Duration.ofMinutes(15), PART_SIZE);
+    }
+
+    @AfterEach
+    void stop() {
+        store.close();
+        s3.close();
+    }
+
+    @Test
+    void uploadsLargeFilesInParts() throws Exception {
+        byte[] content = randomBytes(3 * PART_SIZE + 17);
+        Path file = write(content);
+
+        store.put("large.jpg", file, "image/jpeg");
+
+        assertThat(s3.partAttempts()).containsExactly(1, 2, 3, 4);
+        assertThat(s3.object(BUCKET, "large.jpg")).isEqualTo(content);
+        assertThat(file).doesNotExist();
+        try (InputStream in = store.open("large.jpg")) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void retriedPartResendsItsOwnRange() throws Exception {
+        byte[] content = randomBytes(2 * PART_SIZE + 5);
+        s3.failPart(2, 1);
+
+        store.put("retried.jpg", write(content), "image/jpeg");
+
+        assertThat(s3.partAttempts()).containsExactly(1, 2, 2, 3);
+        assertThat(s3.object(BUCKET, "retried.jpg")).isEqualTo(content);
+    }
+
+    @Test
+    void abortsTheUploadWhenAPartKeepsFailing() throws Exception {
+        Path file = write(randomBytes(3 * PART_SIZE));
+        s3.failPart(2, 100);
+
+        assertThatThrownBy(() -> store.put("failed.jpg", file, "image/jpeg")).isInstanceOf(IOException.class);
+
+        assertThat(s3.abortedUploads()).hasSize(1);
+        assertThat(s3.openUploads()).isZero();
+        assertThat(s3.object(BUCKET, "failed.jpg")).isNull();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void uploadsSmallFilesInOneRequest() throws Exception {
+        byte[] content = randomBytes(PART_SIZE - 1);
+
+        store.put("small.jpg", write(content), "image/jpeg");
+
+        assertThat(s3.partAttempts()).isEmpty();
+        assertThat(s3.object(BUCKET, "small.jpg")).isEqualTo(content);
+    }
+
+    private Path write(byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(dir, "upload", ".tmp"), content);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
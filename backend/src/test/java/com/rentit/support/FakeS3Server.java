@@ -0,0 +1,273 @@
+package com.rentit.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal in-process S3 endpoint (path-style) covering the object and multipart calls S3ImageStore makes,
+ * with hooks to fail individual part uploads.
+ */
+public class FakeS3Server implements AutoCloseable {
+
+    private static final String XMLNS = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private record StoredObject(byte[] content, String contentType, String eTag, ZonedDateTime lastModified) {
+    }
+
+    private final HttpServer server;
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Set<String> aborted = ConcurrentHashMap.newKeySet();
+    private final List<Integer> partAttempts = new CopyOnWriteArrayList<>();
+    private final Map<Integer, AtomicInteger> partFailures = new ConcurrentHashMap<>();
+
+    public FakeS3Server() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public byte[] object(String bucket, String key) {
+        StoredObject object = objects.get(bucket + "/" + key);
+        return object != null ? object.content() : null;
+    }
+
+    /**
+     * Part numbers in the order their upload requests arrived, retries included.
+     */
+    public List<Integer> partAttempts() {
+        return partAttempts;
+    }
+
+    public Set<String> abortedUploads() {
+        return aborted;
+    }
+
+    public int openUploads() {
+        return uploads.size();
+    }
+
+    /**
+     * Answers the next {@code times} uploads of the given part with a 500.
+     */
+    public void failPart(int partNumber, int times) {
+        partFailures.put(partNumber, new AtomicInteger(times));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath().substring(1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            byte[] body = body(exchange);
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    if (query.containsKey("partNumber")) {
+                        uploadPart(exchange, query, body);
+                    } else if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                        copyObject(exchange, path);
+                    } else {
+                        StoredObject object = store(path, body, exchange.getRequestHeaders().getFirst("Content-Type"), md5(body));
+                        exchange.getResponseHeaders().add("ETag", object.eTag());
+                        exchange.sendResponseHeaders(200, -1);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        String uploadId = UUID.randomUUID().toString();
+                        uploads.put(uploadId, new TreeMap<>());
+                        xml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + XMLNS + "\"><Bucket>"
+                                + path.substring(0, path.indexOf('/')) + "</Bucket><Key>" + path.substring(path.indexOf('/') + 1)
+                                + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+                    } else {
+                        completeUpload(exchange, path, query.get("uploadId"), new String(body, StandardCharsets.UTF_8));
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.remove(query.get("uploadId"));
+                        aborted.add(query.get("uploadId"));
+                    } else {
+                        objects.remove(path);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                case "HEAD" -> {
+                    StoredObject object = objects.get(path);
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    objectHeaders(exchange, object);
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.content().length));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> {
+                    StoredObject object = objects.get(path);
+                    if (object == null) {
+                        xml(exchange, 404, "<Error><Code>NoSuchKey</Code><Message>Not found</Message></Error>");
+                        return;
+                    }
+                    objectHeaders(exchange, object);
+                    exchange.sendResponseHeaders(200, object.content().length);
+                    exchange.getResponseBody().write(object.content());
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void uploadPart(HttpExchange exchange, Map<String, String> query, byte[] body) throws IOException {
+        int partNumber = Integer.parseInt(query.get("partNumber"));
+        partAttempts.add(partNumber);
+        AtomicInteger failures = partFailures.get(partNumber);
+        if (failures != null && failures.getAndDecrement() > 0) {
+            xml(exchange, 500, "<Error><Code>InternalError</Code><Message>Injected failure</Message></Error>");
+            return;
+        }
+        Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+        if (parts == null) {
+            xml(exchange, 404, "<Error><Code>NoSuchUpload</Code><Message>Unknown upload</Message></Error>");
+            return;
+        }
+        parts.put(partNumber, body);
+        exchange.getResponseHeaders().add("ETag", md5(body));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void completeUpload(HttpExchange exchange, String path, String uploadId, String request) throws IOException {
+        Map<Integer, byte[]> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            xml(exchange, 404, "<Error><Code>NoSuchUpload</Code><Message>Unknown upload</Message></Error>");
+            return;
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        Matcher matcher = PART_NUMBER.matcher(request);
+        int count = 0;
+        while (matcher.find()) {
+            content.write(parts.get(Integer.parseInt(matcher.group(1))));
+            count++;
+        }
+        String eTag = "\"" + UUID.randomUUID().toString().replace("-", "") + "-" + count + "\"";
+        store(path, content.toByteArray(), "application/octet-stream", eTag);
+        xml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + XMLNS + "\"><Key>" + path
+                + "</Key><ETag>" + eTag + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void copyObject(HttpExchange exchange, String path) throws IOException {
+        StoredObject source = objects.get(path);
+        if (source == null) {
+            xml(exchange, 404, "<Error><Code>NoSuchKey</Code><Message>Not found</Message></Error>");
+            return;
+        }
+        StoredObject copy = store(path, source.content(), exchange.getRequestHeaders().getFirst("Content-Type"), source.eTag());
+        xml(exchange, 200, "<CopyObjectResult xmlns=\"" + XMLNS + "\"><ETag>" + copy.eTag() + "</ETag><LastModified>"
+                + copy.lastModified().format(DateTimeFormatter.ISO_INSTANT) + "</LastModified></CopyObjectResult>");
+    }
+
+    private StoredObject store(String path, byte[] content, String contentType, String eTag) {
+        StoredObject object = new StoredObject(content, contentType, eTag, ZonedDateTime.now(ZoneOffset.UTC).withNano(0));
+        objects.put(path, object);
+        return object;
+    }
+
+    private static void objectHeaders(HttpExchange exchange, StoredObject object) {
+        exchange.getResponseHeaders().add("ETag", object.eTag());
+        exchange.getResponseHeaders().add("Last-Modified", object.lastModified().format(DateTimeFormatter.RFC_1123_DATE_TIME));
+        if (object.contentType() != null) {
+            exchange.getResponseHeaders().add("Content-Type", object.contentType());
+        }
+    }
+
+    private static void xml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * The request payload, with aws-chunked framing (used for signed streaming uploads over plain HTTP) removed.
+     */
+    private static byte[] body(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (sha == null || !sha.startsWith("STREAMING-")) {
+            return raw;
+        }
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = indexOf(raw, position);
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";")[0], 16);
+            position = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            decoded.write(raw, position, size);
+            position += size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static int indexOf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length - 1; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                query.put(equals < 0 ? pair : pair.substring(0, equals), equals < 0 ? "" : pair.substring(equals + 1));
+            }
+        }
+        return query;
+    }
+
+    private static String md5(byte[] content) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.rentit.support;
+
+import com.rentit.entity.Booking;
+import com.rentit.entity.Property;
+import com.rentit.entity.PropertyImage;
+import com.rentit.entity.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unsaved entities with every required column filled in, for tests to adjust and persist. Users log in
+ * with the password "password".
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static User user(String name, User.Role role) {
+        return User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password("{noop}password")
+                .role(role)
+                .build();
+    }
+
+    /**
+     * A verified, available two-bedroom apartment with no images or amenities; override what the test needs.
+     */
+    public static Property.PropertyBuilder property(User owner, String city) {
+        return Property.builder()
+                .owner(owner)
+                .title("Property in " + city)
+                .description("A property created by a test")
+                .propertyType(Property.PropertyType.APARTMENT)
+                .rentAmount(1000d)
+                .deposit(2000d)
+                .address("1 Test Street")
+                .city(city)
+                .state("Karnataka")
+                .pincode("560001")
+                .bedrooms(2)
+                .bathrooms(1)
+                .availabilityStatus(Property.AvailabilityStatus.AVAILABLE)
+                .isVerified(true)
+                .views(0L)
+                .amenities(new ArrayList<>())
+                .images(new ArrayList<>());
+    }
+
+    /**
+     * Replaces the property's images with the given urls, the first one primary.
+     */
+    public static Property withImages(Property property, String... urls) {
+        List<PropertyImage> images = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            images.add(PropertyImage.builder().url(urls[i]).isPrimary(i == 0).property(property).build());
+        }
+        property.setImages(images);
+        return property;
+    }
+
+    public static Booking pendingBooking(Property property, User tenant, LocalDate checkIn, LocalDate checkOut) {
+        return Booking.builder()
+                .property(property)
+                .tenant(tenant)
+                .owner(property.getOwner())
+                .checkInDate(checkIn)
+                .checkOutDate(checkOut)
+                .bookingStatus(Booking.BookingStatus.PENDING)
+                .build();
+    }
+}
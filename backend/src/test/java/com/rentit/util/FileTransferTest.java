@@ -0,0 +1,61 @@
+package com.rentit.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.time.Duration.ofSeconds;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class FileTransferTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void handsTheRangeToSendfileWhenSupported() throws Exception {
+        Path file = Files.writeString(dir.resolve("image.jpg"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileTransfer.send(file, 2, 6, request, response);
+
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toRealPath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(2L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(6L);
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void copiesTheRangeOtherwise() throws Exception {
+        Path file = Files.writeString(dir.resolve("image.jpg"), "0123456789");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileTransfer.send(file, 2, 6, new MockHttpServletRequest(), response);
+
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("2345");
+    }
+
+    @Test
+    void failsWhenTheFileIsShorterThanTheRange() throws Exception {
+        // e.g. truncated between stat() and send()
+        Path file = Files.writeString(dir.resolve("image.jpg"), "0123");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTimeoutPreemptively(ofSeconds(5), () -> assertThatThrownBy(
+                () -> FileTransfer.send(file, 0, 10, new MockHttpServletRequest(), response))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("ended at byte 4 of 10"));
+    }
+}